@@ -0,0 +1,327 @@
+/*
+ * Copyright 2016 Johannes Donath <johannesd@torchmind.com>
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rocks.spud.mc.discord.generator;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Generates the perfect hash tables which translate emoji between their unicode representation and
+ * their Discord shortcodes.
+ *
+ * Keys are distributed into buckets of roughly four keys each. Every bucket is assigned a
+ * displacement which moves all of its keys into distinct, unoccupied slots (buckets are placed in
+ * descending order of their size as larger buckets are harder to fit). Looking up a key thus
+ * requires two hash computations and a single comparison. The hash functions need to match the
+ * ones within {@code rocks.spud.mc.discord.Emoji}.
+ *
+ * Usage: {@code EmojiTableGenerator <emoji.txt> <output directory>}
+ *
+ * @author <a href="mailto:johannesd@torchmind.com">Johannes Donath</a>
+ */
+public final class EmojiTableGenerator {
+    private static final char VARIATION_SELECTOR = '\ufe0f';
+    private static final int MAX_DISPLACEMENT = 1 << 24;
+
+    private EmojiTableGenerator() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: EmojiTableGenerator <emoji.txt> <output directory>");
+            System.exit(1);
+        }
+
+        Map<String, String> unicode = new LinkedHashMap<>();
+        Map<String, String> shortcodes = new LinkedHashMap<>();
+        List<String> stripped = new ArrayList<>();
+        int lineNumber = 0;
+
+        for (String line : Files.readAllLines(Paths.get(args[0]), StandardCharsets.UTF_8)) {
+            ++lineNumber;
+            line = line.trim();
+
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+
+            int separator = line.indexOf(';');
+
+            if (separator == -1) {
+                throw new IllegalArgumentException("Line " + lineNumber + ": Expected code points and shortcodes separated by a semicolon");
+            }
+
+            StringBuilder emoji = new StringBuilder();
+
+            for (String codePoint : line.substring(0, separator).trim().split("\\s+")) {
+                emoji.appendCodePoint(Integer.parseInt(codePoint, 16));
+            }
+
+            String[] names = line.substring(separator + 1).trim().split("\\s+");
+            String value = emoji.toString();
+            char first = value.charAt(0);
+
+            // see Emoji#isCandidate(char)
+            if ((first < '\u2000' || first >= '\u3300') && !Character.isHighSurrogate(first)) {
+                throw new IllegalArgumentException("Line " + lineNumber + ": Emoji must start with a high surrogate or a character between U+2000 and U+32FF");
+            }
+
+
+            if (names[0].isEmpty()) {
+                throw new IllegalArgumentException("Line " + lineNumber + ": Expected at least one shortcode");
+            }
+
+            if (unicode.put(value, names[0]) != null) {
+                throw new IllegalArgumentException("Line " + lineNumber + ": Duplicate emoji");
+            }
+
+            for (String name : names) {
+                if (shortcodes.put(name, value) != null) {
+                    throw new IllegalArgumentException("Line " + lineNumber + ": Duplicate shortcode: " + name);
+                }
+            }
+
+            if (value.indexOf(VARIATION_SELECTOR) != -1) {
+                stripped.add(value);
+            }
+        }
+
+        // unqualified forms are only added when they do not clash with another emoji
+        for (String value : stripped) {
+            unicode.putIfAbsent(value.replace(String.valueOf(VARIATION_SELECTOR), ""), unicode.get(value));
+        }
+
+        Path output = Paths.get(args[1], "rocks", "spud", "mc", "discord", "EmojiTable.java");
+        Files.createDirectories(output.getParent());
+
+        try (Writer writer = Files.newBufferedWriter(output, StandardCharsets.UTF_8)) {
+            writer.write("/*\n * Generated by EmojiTableGenerator from emoji.txt - do not edit.\n */\n");
+            writer.write("package rocks.spud.mc.discord;\n\n");
+            writer.write("/**\n * Provides the perfect hash tables which back {@link Emoji}.\n */\n");
+            writer.write("final class EmojiTable {\n");
+            writeTable(writer, "UNICODE", unicode);
+            writeTable(writer, "SHORTCODE", shortcodes);
+            writer.write("\n    private EmojiTable() {\n    }\n}\n");
+        }
+    }
+
+    /**
+     * Computes a perfect hash table and writes it as a set of constants.
+     *
+     * @param writer  a writer.
+     * @param prefix  the constant prefix.
+     * @param entries a map of keys and values.
+     * @throws IOException when writing fails.
+     */
+    private static void writeTable(Writer writer, String prefix, Map<String, String> entries) throws IOException {
+        String[] keys = entries.keySet().toArray(new String[entries.size()]);
+        Map<Integer, String> hashes = new HashMap<>();
+
+        // keys which share a hash code cannot be told apart by any displacement
+        for (String key : keys) {
+            String previous = hashes.put(hash(key), key);
+
+            if (previous != null) {
+                throw new IllegalStateException("Hash collision between " + literal(previous) + " and " + literal(key));
+            }
+        }
+
+        int size = keys.length + keys.length / 4 + 1;
+        int bucketCount = (keys.length + 3) / 4;
+
+        List<List<String>> buckets = new ArrayList<>(bucketCount);
+
+        for (int i = 0; i < bucketCount; ++i) {
+            buckets.add(new ArrayList<>());
+        }
+
+        for (String key : keys) {
+            buckets.get(bucket(hash(key), bucketCount)).add(key);
+        }
+
+        Integer[] order = new Integer[bucketCount];
+
+        for (int i = 0; i < bucketCount; ++i) {
+            order[i] = i;
+        }
+
+        Arrays.sort(order, Comparator.comparingInt((Integer i) -> buckets.get(i).size()).reversed());
+
+        int[] displacements = new int[bucketCount];
+        String[] slots = new String[size];
+        int[] candidates = new int[keys.length];
+
+        for (int index : order) {
+            List<String> bucket = buckets.get(index);
+
+            if (bucket.isEmpty()) {
+                break;
+            }
+
+            int displacement = 0;
+
+            while (!fits(bucket, displacement, slots, candidates)) {
+                if (++displacement == MAX_DISPLACEMENT) {
+                    throw new IllegalStateException("Cannot find a perfect hash function for " + prefix.toLowerCase() + " table");
+                }
+            }
+
+            for (int i = 0; i < bucket.size(); ++i) {
+                slots[candidates[i]] = bucket.get(i);
+            }
+
+            displacements[index] = displacement;
+        }
+
+        int maxLength = 0;
+
+        for (String key : keys) {
+            maxLength = Math.max(maxLength, key.length());
+        }
+
+        writer.write("    static final int " + prefix + "_MAX_LENGTH = " + maxLength + ";\n");
+        writer.write("    static final int[] " + prefix + "_DISPLACEMENTS = {");
+
+        for (int i = 0; i < displacements.length; ++i) {
+            writer.write((i == 0 ? "" : ", ") + displacements[i]);
+        }
+
+        writer.write("};\n    static final String[] " + prefix + "_KEYS = {");
+
+        for (int i = 0; i < slots.length; ++i) {
+            writer.write((i == 0 ? "" : ", ") + literal(slots[i]));
+        }
+
+        writer.write("};\n    static final String[] " + prefix + "_VALUES = {");
+
+        for (int i = 0; i < slots.length; ++i) {
+            writer.write((i == 0 ? "" : ", ") + literal(slots[i] == null ? null : entries.get(slots[i])));
+        }
+
+        writer.write("};\n");
+    }
+
+    /**
+     * Checks whether all keys of a bucket are moved into distinct, unoccupied slots by a certain
+     * displacement.
+     *
+     * @param bucket       a bucket.
+     * @param displacement a displacement.
+     * @param slots        the table slots.
+     * @param candidates   an array which receives the slot of each key.
+     * @return true if all keys fit, false otherwise.
+     */
+    private static boolean fits(List<String> bucket, int displacement, String[] slots, int[] candidates) {
+        for (int i = 0; i < bucket.size(); ++i) {
+            int slot = slot(hash(bucket.get(i)), displacement, slots.length);
+
+            if (slots[slot] != null) {
+                return false;
+            }
+
+            for (int j = 0; j < i; ++j) {
+                if (candidates[j] == slot) {
+                    return false;
+                }
+            }
+
+            candidates[i] = slot;
+        }
+
+        return true;
+    }
+
+    /**
+     * Computes the hash code of a key (32-bit FNV-1a over its UTF-16 code units).
+     *
+     * {@link String#hashCode()} is not used since it maps many pairs of emoji onto the same value
+     * (their surrogates differ by amounts which cancel each other out).
+     *
+     * @param key a key.
+     * @return a hash code.
+     */
+    private static int hash(String key) {
+        int hash = 0x811C9DC5;
+
+        for (int i = 0; i < key.length(); ++i) {
+            hash = (hash ^ key.charAt(i)) * 0x01000193;
+        }
+
+        return hash;
+    }
+
+    /**
+     * Selects the bucket of a key.
+     *
+     * @param hash    the key's hash code.
+     * @param buckets the amount of buckets.
+     * @return a bucket index.
+     */
+    private static int bucket(int hash, int buckets) {
+        return (hash & 0x7FFFFFFF) % buckets;
+    }
+
+    /**
+     * Selects the slot of a key.
+     *
+     * @param hash         the key's hash code.
+     * @param displacement the displacement of the key's bucket.
+     * @param size         the amount of slots.
+     * @return a slot index.
+     */
+    private static int slot(int hash, int displacement, int size) {
+        int h = (hash ^ displacement) * 0x9E3779B1;
+        return ((h ^ (h >>> 16)) & 0x7FFFFFFF) % size;
+    }
+
+    /**
+     * Converts a string into a Java string literal.
+     *
+     * @param value a string.
+     * @return a literal.
+     */
+    private static String literal(String value) {
+        if (value == null) {
+            return "null";
+        }
+
+        StringBuilder builder = new StringBuilder(value.length() * 6 + 2).append('"');
+
+        for (int i = 0; i < value.length(); ++i) {
+            char c = value.charAt(i);
+
+            if (c < 0x20 || c > 0x7E || c == '"' || c == '\\') {
+                builder.append(String.format("\\u%04x", (int) c));
+            } else {
+                builder.append(c);
+            }
+        }
+
+        return builder.append('"').toString();
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2016 Johannes Donath <johannesd@torchmind.com>
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rocks.spud.mc.discord;
+
+import net.minecraft.command.CommandResultStats;
+import net.minecraft.command.ICommandSender;
+import net.minecraft.entity.Entity;
+import net.minecraft.scoreboard.ScorePlayerTeam;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.Vec3d;
+import net.minecraft.util.text.ITextComponent;
+import net.minecraft.util.text.TextComponentString;
+import net.minecraft.util.text.event.ClickEvent;
+import net.minecraft.util.text.event.HoverEvent;
+import net.minecraft.world.World;
+
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Provides a synthetic command sender which stands in for a player within benchmarks.
+ *
+ * Just like a player, the sender constructs a new display name component (including the click
+ * and hover events a player's name carries) whenever it is queried.
+ *
+ * @author <a href="mailto:johannesd@torchmind.com">Johannes Donath</a>
+ */
+final class BenchmarkCommandSender implements ICommandSender {
+    private final String name;
+    private final UUID id;
+
+    BenchmarkCommandSender(@Nonnull String name) {
+        this.name = name;
+        this.id = UUID.nameUUIDFromBytes(name.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Nonnull
+    UUID getUniqueID() {
+        return this.id;
+    }
+
+    @Override
+    public String getName() {
+        return this.name;
+    }
+
+    @Override
+    public ITextComponent getDisplayName() {
+        ITextComponent component = new TextComponentString(ScorePlayerTeam.formatPlayerName(null, this.name));
+        component.getStyle().setClickEvent(new ClickEvent(ClickEvent.Action.SUGGEST_COMMAND, "/msg " + this.name + " "));
+        component.getStyle().setHoverEvent(new HoverEvent(HoverEvent.Action.SHOW_ENTITY, new TextComponentString("{id:\"" + this.id + "\",type:\"Player\",name:\"" + this.name + "\"}")));
+        component.getStyle().setInsertion(this.name);
+        return component;
+    }
+
+    @Override
+    public void addChatMessage(ITextComponent component) {
+    }
+
+    @Override
+    public boolean canCommandSenderUseCommand(int permLevel, String commandName) {
+        return false;
+    }
+
+    @Override
+    public BlockPos getPosition() {
+        return BlockPos.ORIGIN;
+    }
+
+    @Override
+    public Vec3d getPositionVector() {
+        return Vec3d.ZERO;
+    }
+
+    @Override
+    public World getEntityWorld() {
+        return null;
+    }
+
+    @Override
+    public Entity getCommandSenderEntity() {
+        return null;
+    }
+
+    @Override
+    public boolean sendCommandFeedback() {
+        return false;
+    }
+
+    @Override
+    public void setCommandStat(CommandResultStats.Type type, int amount) {
+    }
+
+    @Override
+    public MinecraftServer getServer() {
+        return null;
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2016 Johannes Donath <johannesd@torchmind.com>
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rocks.spud.mc.discord;
+
+import net.minecraft.util.text.ITextComponent;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Measures the cost of receiving a batch of Discord messages (on the JDA thread) and delivering it
+ * on the next server tick.
+ *
+ * A consumer which discards all messages stands in for the server's player list.
+ *
+ * @author <a href="mailto:johannesd@torchmind.com">Johannes Donath</a>
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DiscordListenerBenchmark {
+    @Param({"1", "20"})
+    public int batchSize;
+
+    private ChatBridge bridge;
+    private String content;
+    private Consumer<ITextComponent> server;
+
+    @Setup
+    public void setup(@Nonnull Blackhole blackhole) {
+        this.bridge = ChatBridge.builder()
+                .loginTimeout(0)
+                .inboundPerTick(this.batchSize)
+                .inboundPerSecond(0)
+                .inboundPerAuthor(0)
+                .buildDetached("0");
+        this.content = "Has anybody seen my diamond pickaxe? I left it right next to the furnace.";
+        this.server = blackhole::consume;
+    }
+
+    @TearDown
+    public void tearDown() {
+        this.bridge.shutdown();
+    }
+
+    @Benchmark
+    public int receiveAndDeliver() {
+        for (int i = 0; i < this.batchSize; ++i) {
+            this.bridge.receive("170000000000000000", false, false, "Notch", this.content);
+        }
+
+        return this.bridge.deliverInbound(this.server);
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2016 Johannes Donath <johannesd@torchmind.com>
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rocks.spud.mc.discord;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of resolving the display name of a chatting player with and without the
+ * display name cache.
+ *
+ * Every invocation resolves the name of the next player in a round robin fashion in order to
+ * simulate a busy server on which many players are chatting at the same time.
+ *
+ * @author <a href="mailto:johannesd@torchmind.com">Johannes Donath</a>
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DisplayNameCacheBenchmark {
+    @Param({"1", "100"})
+    public int players;
+
+    private BenchmarkCommandSender[] senders;
+    private DisplayNameCache cache;
+    private int next;
+
+    @Setup
+    public void setup() {
+        this.senders = new BenchmarkCommandSender[this.players];
+
+        for (int i = 0; i < this.players; ++i) {
+            this.senders[i] = new BenchmarkCommandSender("Player" + i);
+        }
+
+        this.cache = new DisplayNameCache();
+    }
+
+    @Benchmark
+    public String uncached() {
+        return this.nextSender().getDisplayName().getUnformattedText();
+    }
+
+    @Benchmark
+    public String cached() {
+        BenchmarkCommandSender sender = this.nextSender();
+        return this.cache.get(sender.getUniqueID(), null, sender);
+    }
+
+    private BenchmarkCommandSender nextSender() {
+        BenchmarkCommandSender sender = this.senders[this.next];
+        this.next = (this.next + 1) % this.senders.length;
+        return sender;
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2016 Johannes Donath <johannesd@torchmind.com>
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rocks.spud.mc.discord;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Compares the cost of replacing emoji through the generated perfect hash tables with the cost of
+ * replacing them through a hash map which is keyed by substrings of the message.
+ *
+ * @author <a href="mailto:johannesd@torchmind.com">Johannes Donath</a>
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EmojiBenchmark {
+    @Param({"plain", "emoji"})
+    public String input;
+
+    private String message;
+    private Map<String, String> map;
+
+    @Setup
+    public void setup() {
+        this.message = ("plain".equals(this.input) ? "Has anybody seen my diamond pickaxe? I left it right next to the furnace." : "Has anybody seen my diamond pickaxe? \u26cf\ufe0f I left it right next to the furnace \ud83d\udd25\ud83d\ude2d\ud83d\udc4d\ud83c\udffd");
+        this.map = new HashMap<>();
+
+        for (int i = 0; i < EmojiTable.UNICODE_KEYS.length; ++i) {
+            if (EmojiTable.UNICODE_KEYS[i] != null) {
+                this.map.put(EmojiTable.UNICODE_KEYS[i], EmojiTable.UNICODE_VALUES[i]);
+            }
+        }
+    }
+
+    @Benchmark
+    public String perfectHash() {
+        return Emoji.toShortcodes(this.message);
+    }
+
+    @Benchmark
+    public String hashMap() {
+        return toShortcodes(this.map, this.message);
+    }
+
+    /**
+     * Replaces all emoji within a string by looking up every candidate substring within a map.
+     *
+     * @param map     a map of emoji and shortcodes.
+     * @param message a string.
+     * @return a string.
+     */
+    @Nonnull
+    private static String toShortcodes(@Nonnull Map<String, String> map, @Nonnull String message) {
+        StringBuilder builder = new StringBuilder(message.length() + 16);
+        int i = 0;
+
+        while (i < message.length()) {
+            String match = null;
+            int matchLength = 0;
+
+            if (Emoji.isCandidate(message.charAt(i))) {
+                for (int length = 1; length <= EmojiTable.UNICODE_MAX_LENGTH && i + length <= message.length(); ++length) {
+                    String shortcode = map.get(message.substring(i, i + length));
+
+                    if (shortcode != null) {
+                        match = shortcode;
+                        matchLength = length;
+                    }
+                }
+            }
+
+            if (match == null) {
+                builder.append(message.charAt(i++));
+                continue;
+            }
+
+            builder.append(':').append(match).append(':');
+            i += matchLength;
+        }
+
+        return builder.toString();
+    }
+}
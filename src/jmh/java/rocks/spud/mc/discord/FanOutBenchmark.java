@@ -0,0 +1,121 @@
+/*
+ * Copyright 2016 Johannes Donath <johannesd@torchmind.com>
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rocks.spud.mc.discord;
+
+import net.dv8tion.jda.entities.TextChannel;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Measures the cost of passing a single line to a varying amount of bridged channels on the sender
+ * thread.
+ *
+ * The channels are backed by proxies which discard all messages while their rate limits are
+ * configured generously enough to never delay a message.
+ *
+ * @author <a href="mailto:johannesd@torchmind.com">Johannes Donath</a>
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FanOutBenchmark {
+    @Param({"1", "4", "16"})
+    public int channels;
+
+    private SendScheduler scheduler;
+    private String line;
+
+    @Setup
+    public void setup() {
+        List<TextChannel> channels = new ArrayList<>(this.channels);
+
+        for (int i = 0; i < this.channels; ++i) {
+            channels.add(channel("channel-" + i));
+        }
+
+        Map<EventType, List<TextChannel>> routes = new EnumMap<>(EventType.class);
+
+        for (EventType type : EventType.values()) {
+            routes.put(type, channels);
+        }
+
+        this.scheduler = new SendScheduler(routes, new BridgeMetrics(() -> 0, () -> 0, () -> 0), new SendScheduler.Listener() {
+            @Override
+            public void delivered(@Nonnull OutboundEvent event) {
+            }
+
+            @Override
+            public void failed(@Nonnull OutboundEvent event) {
+            }
+        }, false, 0, 1000000, 1, 16);
+        this.line = ":speech_balloon: <Notch> Has anybody seen my diamond pickaxe? I left it right next to the furnace.";
+    }
+
+    @Benchmark
+    public long fanOut() {
+        long now = System.nanoTime();
+
+        this.scheduler.submit(this.line, new OutboundEvent(EventType.CHAT, "Notch", null), now);
+        return this.scheduler.advance(now);
+    }
+
+    /**
+     * Creates a channel which discards all messages.
+     *
+     * @param name a channel name.
+     * @return a channel.
+     */
+    @Nonnull
+    private static TextChannel channel(@Nonnull String name) {
+        return (TextChannel) Proxy.newProxyInstance(FanOutBenchmark.class.getClassLoader(), new Class<?>[]{TextChannel.class}, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "getName":
+                    return name;
+                case "getId":
+                    return Integer.toString(name.hashCode());
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "equals":
+                    return proxy == args[0];
+                default:
+                    return null;
+            }
+        });
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2016 Johannes Donath <johannesd@torchmind.com>
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rocks.spud.mc.discord;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the time spent on the server thread when a chat message or status change is passed to
+ * the bridge.
+ *
+ * Since the game's entities cannot be constructed outside of a running server, a synthetic command
+ * sender stands in for the player. The sender thread is running and discards all events as the
+ * bridge is not connected to Discord.
+ *
+ * @author <a href="mailto:johannesd@torchmind.com">Johannes Donath</a>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ForgeListenerBenchmark {
+    private ChatBridge bridge;
+    private BenchmarkCommandSender sender;
+    private String message;
+
+    @Setup
+    public void setup() {
+        this.bridge = ChatBridge.builder()
+                .loginTimeout(0)
+                .overflowPolicy(OverflowPolicy.DROP_OLDEST)
+                .buildDetached("0");
+        this.sender = new BenchmarkCommandSender("Notch");
+        this.message = "Has anybody seen my diamond pickaxe? I left it right next to the furnace.";
+    }
+
+    @TearDown
+    public void tearDown() {
+        this.bridge.shutdown();
+    }
+
+    @Benchmark
+    public void chat() {
+        this.bridge.sendMessage(this.sender, this.message);
+    }
+
+    @Benchmark
+    public void status() {
+        this.bridge.sendStatus(this.message);
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2016 Johannes Donath <johannesd@torchmind.com>
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rocks.spud.mc.discord;
+
+import net.minecraft.util.text.ITextComponent;
+import net.minecraft.util.text.TextComponentString;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of translating chat messages and styled components into Discord markdown
+ * compared to flattening them into unformatted text.
+ *
+ * @author <a href="mailto:johannesd@torchmind.com">Johannes Donath</a>
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FormattingTranslatorBenchmark {
+    @Param({"plain", "markup", "legacy", "mentions"})
+    public String input;
+
+    private String message;
+    private ITextComponent component;
+
+    @Setup
+    public void setup() {
+        switch (this.input) {
+            case "plain":
+                this.message = "Has anybody seen my diamond pickaxe? I left it right next to the furnace.";
+                break;
+            case "markup":
+                this.message = "Has *anybody* seen my diamond_pickaxe? @everyone check https://example.com/base_location ~~please~~";
+                break;
+            case "mentions":
+                // formatting codes between the at sign and the keyword must not revive the mention
+                this.message = "Over here @\u00a7reveryone, @\u00a7l\u00a7rhere and @Notch";
+                break;
+            default:
+                this.message = "\u00a7lHas anybody\u00a7r seen my \u00a7odiamond pickaxe\u00a7r? I left it \u00a7c\u00a7mright\u00a7r next to the furnace.";
+                break;
+        }
+
+        TextComponentString name = new TextComponentString("Notch");
+        name.getStyle().setBold(true);
+
+        this.component = new TextComponentString("")
+                .appendSibling(name)
+                .appendText(" was slain by ")
+                .appendSibling(new TextComponentString(this.message));
+
+        // mentions which are split across siblings must not be revived either
+        if ("mentions".equals(this.input)) {
+            this.component.appendText(" @").appendSibling(new TextComponentString("here"));
+        }
+    }
+
+    @Benchmark
+    public String message() {
+        return FormattingTranslator.translate(this.message);
+    }
+
+    @Benchmark
+    public String component() {
+        return FormattingTranslator.translate(this.component);
+    }
+
+    @Benchmark
+    public String unformatted() {
+        return this.component.getUnformattedText();
+    }
+}
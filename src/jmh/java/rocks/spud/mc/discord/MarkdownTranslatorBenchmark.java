@@ -0,0 +1,111 @@
+/*
+ * Copyright 2016 Johannes Donath <johannesd@torchmind.com>
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rocks.spud.mc.discord;
+
+import net.minecraft.util.text.ITextComponent;
+import net.minecraft.util.text.TextComponentString;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Measures the cost of translating Discord markdown into text components compared to passing the
+ * message on as a single unformatted component.
+ *
+ * Long inputs are padded to Discord's message limit of 2000 characters while pathological inputs
+ * consist of unmatched or deeply nested markup which would cause backtracking approaches to
+ * degrade.
+ *
+ * @author <a href="mailto:johannesd@torchmind.com">Johannes Donath</a>
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MarkdownTranslatorBenchmark {
+    private static final int MESSAGE_LIMIT = 2000;
+
+    @Param({"plain", "formatted", "long", "unmatched", "nested"})
+    public String input;
+
+    private String message;
+
+    @Setup
+    public void setup() {
+        switch (this.input) {
+            case "plain":
+                this.message = "Has anybody seen my diamond pickaxe? I left it right next to the furnace.";
+                break;
+            case "formatted":
+                this.message = "Has **anybody** seen my *diamond pickaxe*? I left it ~~right~~ next to the `furnace` (see https://example.com/base_location).";
+                break;
+            case "long":
+                this.message = repeat("Has **anybody** seen my *diamond pickaxe*? I left it ~~right~~ next to the `furnace` (see https://example.com/base_location). ", MESSAGE_LIMIT);
+                break;
+            case "unmatched":
+                this.message = repeat("*a _b `c ~~d ", MESSAGE_LIMIT);
+                break;
+            default:
+                this.message = repeat("**a *b ", MESSAGE_LIMIT / 2) + repeat("c* d** ", MESSAGE_LIMIT / 2);
+                break;
+        }
+    }
+
+    @Benchmark
+    public ITextComponent unformatted() {
+        return new TextComponentString(this.message);
+    }
+
+    @Benchmark
+    public ITextComponent translate() {
+        return MarkdownTranslator.translate(this.message);
+    }
+
+    /**
+     * Repeats a string until it reaches the specified length.
+     *
+     * @param s      a string.
+     * @param length a length.
+     * @return a string.
+     */
+    @Nonnull
+    private static String repeat(@Nonnull String s, int length) {
+        StringBuilder builder = new StringBuilder(length);
+
+        while (builder.length() < length) {
+            builder.append(s);
+        }
+
+        builder.setLength(length);
+        return builder.toString();
+    }
+}
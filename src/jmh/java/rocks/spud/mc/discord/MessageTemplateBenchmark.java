@@ -0,0 +1,99 @@
+/*
+ * Copyright 2016 Johannes Donath <johannesd@torchmind.com>
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rocks.spud.mc.discord;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the cost of rendering each of the default message patterns through {@link
+ * String#format(String, Object...)} with the cost of rendering them through a pre-compiled {@link
+ * MessageTemplate}.
+ *
+ * @author <a href="mailto:johannesd@torchmind.com">Johannes Donath</a>
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MessageTemplateBenchmark {
+    @Param({"minecraftMessage", "discordJoin", "discordPart", "discordAchievement", "discordDeath", "discordMessage"})
+    public String pattern;
+
+    private String format;
+    private MessageTemplate template;
+    private String name;
+    private String detail;
+
+    @Setup
+    public void setup() {
+        ChatBridge.Builder builder = ChatBridge.builder();
+
+        switch (this.pattern) {
+            case "minecraftMessage":
+                this.format = builder.minecraftMessagePattern();
+                break;
+            case "discordJoin":
+                this.format = builder.discordJoinPattern();
+                break;
+            case "discordPart":
+                this.format = builder.discordPartPattern();
+                break;
+            case "discordAchievement":
+                this.format = builder.discordAchievementPattern();
+                break;
+            case "discordDeath":
+                this.format = builder.discordDeathPattern();
+                break;
+            default:
+                this.format = builder.discordMessagePattern();
+                break;
+        }
+
+        this.template = MessageTemplate.compile(this.format);
+        this.name = "Notch";
+        this.detail = "Has anybody seen my diamond pickaxe? I left it right next to the furnace.";
+    }
+
+    @Benchmark
+    public String format() {
+        return String.format(this.format, this.name, this.detail);
+    }
+
+    @Benchmark
+    public String template() {
+        return this.template.render(this.name, this.detail);
+    }
+
+    @Benchmark
+    public MessageTemplate compile() {
+        return MessageTemplate.compile(this.format);
+    }
+}
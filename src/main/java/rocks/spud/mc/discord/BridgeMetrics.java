@@ -0,0 +1,273 @@
+/*
+ * Copyright 2016 Johannes Donath <johannesd@torchmind.com>
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rocks.spud.mc.discord;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+
+import javax.annotation.Nonnull;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Provides a registry for all statistics which are collected by a chat bridge.
+ *
+ * Counters are striped in order to keep contention between the server thread, the sender thread and
+ * the JDA threads low.
+ *
+ * @author <a href="mailto:johannesd@torchmind.com">Johannes Donath</a>
+ */
+final class BridgeMetrics implements BridgeMetricsMXBean {
+    private static final Logger logger = LogManager.getLogger(BridgeMetrics.class);
+    private static final EventType[] TYPES = EventType.values();
+
+    private final LongAdder[] queued = adders(TYPES.length);
+    private final LongAdder[] sent = adders(TYPES.length);
+    private final LongAdder[] dropped = adders(TYPES.length);
+    private final LongAdder[] failed = adders(TYPES.length);
+    private final LatencyHistogram[] handlerTime = histograms(TYPES.length);
+    private final LatencyHistogram[] latency = histograms(TYPES.length);
+
+    private final LongAdder inboundReceived = new LongAdder();
+    private final LongAdder inboundDelivered = new LongAdder();
+    private final LongAdder inboundDropped = new LongAdder();
+    private final LongAdder inboundLimited = new LongAdder();
+
+    private final IntSupplier outboundQueueDepth;
+    private final IntSupplier inboundQueueDepth;
+    private final IntSupplier pendingMessages;
+    private ObjectName objectName;
+
+    BridgeMetrics(@Nonnull IntSupplier outboundQueueDepth, @Nonnull IntSupplier inboundQueueDepth, @Nonnull IntSupplier pendingMessages) {
+        this.outboundQueueDepth = outboundQueueDepth;
+        this.inboundQueueDepth = inboundQueueDepth;
+        this.pendingMessages = pendingMessages;
+    }
+
+    @Nonnull
+    private static LongAdder[] adders(int length) {
+        LongAdder[] adders = new LongAdder[length];
+
+        for (int i = 0; i < length; ++i) {
+            adders[i] = new LongAdder();
+        }
+
+        return adders;
+    }
+
+    @Nonnull
+    private static LatencyHistogram[] histograms(int length) {
+        LatencyHistogram[] histograms = new LatencyHistogram[length];
+
+        for (int i = 0; i < length; ++i) {
+            histograms[i] = new LatencyHistogram();
+        }
+
+        return histograms;
+    }
+
+    /**
+     * Registers these metrics with the platform MBean server.
+     *
+     * @param name a bridge name.
+     */
+    void register(@Nonnull String name) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName("rocks.spud.mc.discord:type=ChatBridge,name=" + ObjectName.quote(name));
+
+            server.registerMBean(this, objectName);
+            this.objectName = objectName;
+        } catch (JMException ex) {
+            logger.warn("Could not expose bridge statistics via JMX: " + ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * Removes these metrics from the platform MBean server.
+     */
+    void unregister() {
+        if (this.objectName == null) {
+            return;
+        }
+
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(this.objectName);
+        } catch (JMException ex) {
+            logger.warn("Could not remove bridge statistics from JMX: " + ex.getMessage(), ex);
+        }
+
+        this.objectName = null;
+    }
+
+    /**
+     * Records an event which has been passed to the sender thread.
+     *
+     * @param type an event type.
+     */
+    void queued(@Nonnull EventType type) {
+        this.queued[type.ordinal()].increment();
+    }
+
+    /**
+     * Records an event which has been discarded before reaching Discord.
+     *
+     * @param type an event type.
+     */
+    void dropped(@Nonnull EventType type) {
+        this.dropped[type.ordinal()].increment();
+    }
+
+    /**
+     * Records an event which has been acknowledged by Discord.
+     *
+     * @param type    an event type.
+     * @param latency the time since the creation of the event (in nanoseconds).
+     */
+    void sent(@Nonnull EventType type, long latency) {
+        this.sent[type.ordinal()].increment();
+        this.latency[type.ordinal()].record(latency);
+    }
+
+    /**
+     * Records an event which has been rejected by Discord.
+     *
+     * @param type an event type.
+     */
+    void failed(@Nonnull EventType type) {
+        this.failed[type.ordinal()].increment();
+    }
+
+    /**
+     * Records the time spent on the server thread while handling an event.
+     *
+     * @param type an event type.
+     * @param time a duration (in nanoseconds).
+     */
+    void handlerTime(@Nonnull EventType type, long time) {
+        this.handlerTime[type.ordinal()].record(time);
+    }
+
+    /**
+     * Records a message which has been accepted from Discord.
+     */
+    void inboundReceived() {
+        this.inboundReceived.increment();
+    }
+
+    /**
+     * Records messages which have been delivered to the players.
+     *
+     * @param amount an amount of messages.
+     */
+    void inboundDelivered(int amount) {
+        this.inboundDelivered.add(amount);
+    }
+
+    /**
+     * Records a Discord message which has been discarded.
+     */
+    void inboundDropped() {
+        this.inboundDropped.increment();
+    }
+
+    /**
+     * Records a Discord message which has been hidden due to the inbound rate limits.
+     */
+    void inboundLimited() {
+        this.inboundLimited.increment();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Nonnull
+    @Override
+    public List<EventStatistics> getEvents() {
+        List<EventStatistics> events = new ArrayList<>(TYPES.length);
+
+        for (EventType type : TYPES) {
+            int i = type.ordinal();
+            events.add(new EventStatistics(type.name(), this.queued[i].sum(), this.sent[i].sum(), this.dropped[i].sum(), this.failed[i].sum(), this.handlerTime[i].snapshot(), this.latency[i].snapshot()));
+        }
+
+        return events;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getInboundReceived() {
+        return this.inboundReceived.sum();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getInboundDelivered() {
+        return this.inboundDelivered.sum();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getInboundDropped() {
+        return this.inboundDropped.sum();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getInboundLimited() {
+        return this.inboundLimited.sum();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getOutboundQueueDepth() {
+        return this.outboundQueueDepth.getAsInt();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getInboundQueueDepth() {
+        return this.inboundQueueDepth.getAsInt();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getPendingMessages() {
+        return this.pendingMessages.getAsInt();
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2016 Johannes Donath <johannesd@torchmind.com>
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rocks.spud.mc.discord;
+
+import java.util.List;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Exposes the statistics of a chat bridge through JMX.
+ *
+ * @author <a href="mailto:johannesd@torchmind.com">Johannes Donath</a>
+ */
+public interface BridgeMetricsMXBean {
+
+    /**
+     * Retrieves the statistics for each type of event which is forwarded to Discord.
+     *
+     * @return a list of statistics.
+     */
+    @Nonnull
+    List<EventStatistics> getEvents();
+
+    /**
+     * Retrieves the amount of messages which have been accepted from Discord.
+     *
+     * @return an amount of messages.
+     */
+    long getInboundReceived();
+
+    /**
+     * Retrieves the amount of Discord messages which have been delivered to the players.
+     *
+     * @return an amount of messages.
+     */
+    long getInboundDelivered();
+
+    /**
+     * Retrieves the amount of Discord messages which have been discarded.
+     *
+     * @return an amount of messages.
+     */
+    long getInboundDropped();
+
+    /**
+     * Retrieves the amount of Discord messages which have been hidden due to the inbound rate
+     * limits.
+     *
+     * @return an amount of messages.
+     */
+    long getInboundLimited();
+
+    /**
+     * Retrieves the amount of events which are waiting for the sender thread.
+     *
+     * @return an amount of events.
+     */
+    int getOutboundQueueDepth();
+
+    /**
+     * Retrieves the amount of Discord messages which are waiting for the next server tick.
+     *
+     * @return an amount of messages.
+     */
+    int getInboundQueueDepth();
+
+    /**
+     * Retrieves the amount of complete messages which are waiting for a rate limited channel.
+     *
+     * @return an amount of messages.
+     */
+    int getPendingMessages();
+}
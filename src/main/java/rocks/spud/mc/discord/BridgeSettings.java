@@ -0,0 +1,141 @@
+/*
+ * Copyright 2016 Johannes Donath <johannesd@torchmind.com>
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rocks.spud.mc.discord;
+
+import java.util.Set;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Provides an immutable snapshot of all bridge settings which may be replaced while the bridge is
+ * running.
+ *
+ * Listeners retrieve the current snapshot once per event so that a concurrent reload never
+ * results in a mixture of old and new settings.
+ *
+ * @author <a href="mailto:johannesd@torchmind.com">Johannes Donath</a>
+ */
+final class BridgeSettings {
+    private final boolean ignoreBots;
+    private final boolean sendAchievements;
+    private final boolean sendConnects;
+    private final boolean sendDisconnects;
+    private final boolean sendDeaths;
+    private final boolean sendMessages;
+    private final int outageTranscriptLines;
+    private final int inboundLogRate;
+    private final Set<String> bypassRoles;
+    private final Set<String> commandRoles;
+
+    private final MessageTemplate minecraftMessagePattern;
+    private final MessageTemplate discordJoinPattern;
+    private final MessageTemplate discordPartPattern;
+    private final MessageTemplate discordAchievementPattern;
+    private final MessageTemplate discordDeathPattern;
+    private final MessageTemplate discordMessagePattern;
+
+    BridgeSettings(boolean ignoreBots, boolean sendAchievements, boolean sendConnects, boolean sendDisconnects, boolean sendDeaths, boolean sendMessages, int outageTranscriptLines, int inboundLogRate, @Nonnull Set<String> bypassRoles, @Nonnull Set<String> commandRoles, @Nonnull MessageTemplate minecraftMessagePattern, @Nonnull MessageTemplate discordJoinPattern, @Nonnull MessageTemplate discordPartPattern, @Nonnull MessageTemplate discordAchievementPattern, @Nonnull MessageTemplate discordDeathPattern, @Nonnull MessageTemplate discordMessagePattern) {
+        this.ignoreBots = ignoreBots;
+        this.sendAchievements = sendAchievements;
+        this.sendConnects = sendConnects;
+        this.sendDisconnects = sendDisconnects;
+        this.sendDeaths = sendDeaths;
+        this.sendMessages = sendMessages;
+        this.outageTranscriptLines = outageTranscriptLines;
+        this.inboundLogRate = inboundLogRate;
+        this.bypassRoles = bypassRoles;
+        this.commandRoles = commandRoles;
+        this.minecraftMessagePattern = minecraftMessagePattern;
+        this.discordJoinPattern = discordJoinPattern;
+        this.discordPartPattern = discordPartPattern;
+        this.discordAchievementPattern = discordAchievementPattern;
+        this.discordDeathPattern = discordDeathPattern;
+        this.discordMessagePattern = discordMessagePattern;
+    }
+
+    boolean isIgnoreBots() {
+        return this.ignoreBots;
+    }
+
+    boolean isSendAchievements() {
+        return this.sendAchievements;
+    }
+
+    boolean isSendConnects() {
+        return this.sendConnects;
+    }
+
+    boolean isSendDisconnects() {
+        return this.sendDisconnects;
+    }
+
+    boolean isSendDeaths() {
+        return this.sendDeaths;
+    }
+
+    boolean isSendMessages() {
+        return this.sendMessages;
+    }
+
+    int getOutageTranscriptLines() {
+        return this.outageTranscriptLines;
+    }
+
+    int getInboundLogRate() {
+        return this.inboundLogRate;
+    }
+
+    @Nonnull
+    Set<String> getBypassRoles() {
+        return this.bypassRoles;
+    }
+
+    @Nonnull
+    Set<String> getCommandRoles() {
+        return this.commandRoles;
+    }
+
+    @Nonnull
+    MessageTemplate getMinecraftMessagePattern() {
+        return this.minecraftMessagePattern;
+    }
+
+    @Nonnull
+    MessageTemplate getDiscordJoinPattern() {
+        return this.discordJoinPattern;
+    }
+
+    @Nonnull
+    MessageTemplate getDiscordPartPattern() {
+        return this.discordPartPattern;
+    }
+
+    @Nonnull
+    MessageTemplate getDiscordAchievementPattern() {
+        return this.discordAchievementPattern;
+    }
+
+    @Nonnull
+    MessageTemplate getDiscordDeathPattern() {
+        return this.discordDeathPattern;
+    }
+
+    @Nonnull
+    MessageTemplate getDiscordMessagePattern() {
+        return this.discordMessagePattern;
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2016 Johannes Donath <johannesd@torchmind.com>
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rocks.spud.mc.discord;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Represents a snapshot of the send state of a single bridged channel.
+ *
+ * @author <a href="mailto:johannesd@torchmind.com">Johannes Donath</a>
+ */
+public final class ChannelState {
+    private final String name;
+    private final int tokens;
+    private final int capacity;
+    private final int pending;
+    private final long sent;
+    private final long merged;
+    private final long shed;
+    private final long failed;
+
+    ChannelState(@Nonnull String name, int tokens, int capacity, int pending, long sent, long merged, long shed, long failed) {
+        this.name = name;
+        this.tokens = tokens;
+        this.capacity = capacity;
+        this.pending = pending;
+        this.sent = sent;
+        this.merged = merged;
+        this.shed = shed;
+        this.failed = failed;
+    }
+
+    /**
+     * Retrieves the channel name.
+     *
+     * @return a name.
+     */
+    @Nonnull
+    public String getName() {
+        return this.name;
+    }
+
+    /**
+     * Retrieves the amount of messages which may currently be sent without delay.
+     *
+     * @return an amount of tokens.
+     */
+    public int getTokens() {
+        return this.tokens;
+    }
+
+    /**
+     * Retrieves the maximum amount of messages which may be sent in a single burst.
+     *
+     * @return an amount of tokens.
+     */
+    public int getCapacity() {
+        return this.capacity;
+    }
+
+    /**
+     * Retrieves the amount of completed messages which are waiting for a token.
+     *
+     * @return an amount of messages.
+     */
+    public int getPending() {
+        return this.pending;
+    }
+
+    /**
+     * Retrieves the total amount of messages which have been passed to Discord.
+     *
+     * @return an amount of messages.
+     */
+    public long getSent() {
+        return this.sent;
+    }
+
+    /**
+     * Retrieves the total amount of lines which have been merged into a preceding message.
+     *
+     * @return an amount of lines.
+     */
+    public long getMerged() {
+        return this.merged;
+    }
+
+    /**
+     * Retrieves the total amount of messages which have been discarded due to the channel being
+     * saturated.
+     *
+     * @return an amount of messages.
+     */
+    public long getShed() {
+        return this.shed;
+    }
+
+    /**
+     * Retrieves the total amount of messages which Discord has rejected.
+     *
+     * @return an amount of messages.
+     */
+    public long getFailed() {
+        return this.failed;
+    }
+
+    /**
+     * Checks whether the channel is currently saturated (e.g. messages are waiting while its rate
+     * limit has been exhausted).
+     *
+     * @return true if saturated, false otherwise.
+     */
+    public boolean isSaturated() {
+        return this.tokens == 0 && this.pending != 0;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        return "#" + this.name + " (tokens: " + this.tokens + "/" + this.capacity + ", pending: " + this.pending + ", sent: " + this.sent + ", merged: " + this.merged + ", shed: " + this.shed + ", failed: " + this.failed + ")";
+    }
+}
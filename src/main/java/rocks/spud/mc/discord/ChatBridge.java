@@ -19,40 +19,73 @@ package rocks.spud.mc.discord;
 import com.google.common.collect.ImmutableSet;
 
 import net.dv8tion.jda.JDA;
-import net.dv8tion.jda.JDABuilder;
 import net.dv8tion.jda.MessageBuilder;
 import net.dv8tion.jda.entities.Guild;
 import net.dv8tion.jda.entities.Message;
 import net.dv8tion.jda.entities.TextChannel;
-import net.dv8tion.jda.events.ReadyEvent;
+import net.dv8tion.jda.entities.User;
+import net.dv8tion.jda.events.DisconnectEvent;
+import net.dv8tion.jda.events.ReconnectedEvent;
+import net.dv8tion.jda.events.ResumedEvent;
+import net.dv8tion.jda.events.guild.GuildAvailableEvent;
+import net.dv8tion.jda.events.guild.GuildJoinEvent;
+import net.dv8tion.jda.events.guild.member.GuildMemberJoinEvent;
+import net.dv8tion.jda.events.guild.member.GuildMemberLeaveEvent;
+import net.dv8tion.jda.events.guild.member.GuildMemberNickChangeEvent;
+import net.dv8tion.jda.events.guild.member.GuildMemberRoleAddEvent;
+import net.dv8tion.jda.events.guild.member.GuildMemberRoleRemoveEvent;
 import net.dv8tion.jda.events.message.guild.GuildMessageReceivedEvent;
+import net.dv8tion.jda.events.user.UserNameUpdateEvent;
+import net.dv8tion.jda.hooks.EventListener;
 import net.dv8tion.jda.hooks.ListenerAdapter;
 import net.minecraft.command.ICommandSender;
+import net.minecraft.entity.Entity;
 import net.minecraft.entity.player.EntityPlayer;
 import net.minecraft.entity.player.EntityPlayerMP;
 import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.management.PlayerList;
 import net.minecraft.util.text.ITextComponent;
 import net.minecraft.util.text.TextComponentString;
 import net.minecraftforge.common.MinecraftForge;
 import net.minecraftforge.event.ServerChatEvent;
 import net.minecraftforge.event.entity.living.LivingDeathEvent;
 import net.minecraftforge.event.entity.player.AchievementEvent;
+import net.minecraftforge.event.entity.player.PlayerEvent.NameFormat;
 import net.minecraftforge.fml.common.FMLCommonHandler;
 import net.minecraftforge.fml.common.eventhandler.EventPriority;
 import net.minecraftforge.fml.common.eventhandler.SubscribeEvent;
 import net.minecraftforge.fml.common.gameevent.PlayerEvent;
+import net.minecraftforge.fml.common.gameevent.TickEvent;
 
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
 import java.util.Set;
-import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 import javax.annotation.Nonnull;
-import javax.security.auth.login.LoginException;
+import javax.annotation.Nullable;
 
 /**
  * Provides a simple implementation which manages the synchronization of messages between Minecraft
@@ -61,78 +94,293 @@ import javax.security.auth.login.LoginException;
  * @author <a href="mailto:johannesd@torchmind.com">Johannes Donath</a>
  */
 public class ChatBridge {
-    private final JDA jda;
+    private static final Logger logger = LogManager.getLogger(ChatBridge.class);
+
     private final DiscordListener discordListener = new DiscordListener();
     private final MinecraftForgeListener forgeListener = new MinecraftForgeListener();
+    private final OutboundQueue outboundQueue;
+    private final OutboundDispatcher outboundDispatcher;
+    private final InboundQueue inboundQueue;
+    private final InboundLimiter inboundLimiter;
+    private final Map<String, Boolean> bypassCache = new ConcurrentHashMap<>();
+    private final BridgeMetrics metrics;
+    private final MentionIndex mentions = new MentionIndex();
+    private final DisplayNameCache displayNames = new DisplayNameCache();
+    private final DeathAggregator deathAggregator;
+    private final ConnectionDebouncer connectionDebouncer;
+    private final OutboundJournal journal;
+    private final Queue<OutboundEvent> failedEvents = new ConcurrentLinkedQueue<>();
+    private final DeliveryListener deliveryListener = new DeliveryListener();
 
     // Bot Details
-    private final Guild guild;
-    private final String botId;
-    private final Set<TextChannel> channels;
+    private final String name;
+    private final String guildId;
+    private final long guildSnowflake;
+    private final Set<String> channelNames;
+    private final Map<EventType, Set<String>> routes;
+    private final List<Object> layout;
+    private final AtomicBoolean initialized = new AtomicBoolean(false);
+    private volatile DiscordConnection connection;
+    private volatile Guild guild;
+    private volatile String botId;
+    private volatile Set<TextChannel> channels = Collections.emptySet();
+    private volatile SnowflakeSet channelIds = SnowflakeSet.EMPTY;
+    private volatile SendScheduler scheduler;
+    private volatile long outageSince;
+    private volatile boolean retryRequested;
+    private volatile TextChannel commandChannel;
 
     // Settings
+    private volatile BridgeSettings settings;
     private final boolean enableTTS;
-    private final boolean ignoreBots;
-    private final boolean sendAchievements;
-    private final boolean sendConnects;
-    private final boolean sendDisconnects;
-    private final boolean sendDeaths;
-    private final boolean sendMessages;
-
-    // Patterns
-    private final String minecraftMessagePattern;
-    private final String discordJoinPattern;
-    private final String discordPartPattern;
-    private final String discordAchievementPattern;
-    private final String discordDeathPattern;
-    private final String discordMessagePattern;
-
-    private ChatBridge(@Nonnull String botToken, @Nonnull String guildId, @Nonnull Set<String> channels, boolean enableTTS, boolean ignoreBots, boolean sendAchievements, boolean sendConnects, boolean sendDisconnects, boolean sendDeaths, boolean sendMessages, @Nonnull String minecraftMessagePattern, @Nonnull String discordJoinPattern, @Nonnull String discordPartPattern, @Nonnull String discordAchievementPattern, @Nonnull String discordDeathPattern, @Nonnull String discordMessagePattern) {
+    private final long coalesceWindow;
+    private final int rateLimitBurst;
+    private final long rateLimitPeriod;
+    private final int maxPendingMessages;
+    private final long loginTimeout;
+    private final int startupBufferSize;
+    private final int outageBufferSize;
+    private final File spillDirectory;
+    private final ChatPreferences preferences;
+    private final String consoleChannel;
+    private final ConsoleAppender consoleAppender;
+    private final ConsoleStreamer consoleStreamer;
+    private final String commandChannelName;
+    private final RemoteConsole remoteConsole;
+    private TokenBucket inboundLogBucket;
+    private int inboundLogSkipped;
+
+    private ChatBridge(@Nonnull String name, @Nonnull String guildId, @Nonnull List<Object> layout, @Nonnull Set<String> channels, @Nonnull Map<EventType, Set<String>> routes, boolean enableTTS, int queueCapacity, @Nonnull OverflowPolicy overflowPolicy, long coalesceWindow, int rateLimitBurst, long rateLimitPeriod, int maxPendingMessages, int inboundPerTick, long loginTimeout, int startupBufferSize, long deathWindow, long connectionWindow, @Nullable File journalDirectory, @Nullable OutboundJournal journal, int outageBufferSize, int inboundPerSecond, int inboundPerAuthor, @Nullable ChatPreferences preferences, @Nullable String consoleChannel, @Nonnull Level consoleLevel, int consoleLinesPerMinute, int consoleBufferSize, @Nullable String commandChannel, int commandsPerMinute, long commandBudget, int commandPermissionLevel, @Nonnull BridgeSettings settings) {
+        this.settings = settings;
+        this.layout = layout;
         this.enableTTS = enableTTS;
-        this.ignoreBots = ignoreBots;
-        this.minecraftMessagePattern = minecraftMessagePattern;
-        this.discordJoinPattern = discordJoinPattern;
-        this.discordPartPattern = discordPartPattern;
-        this.discordAchievementPattern = discordAchievementPattern;
-        this.discordDeathPattern = discordDeathPattern;
-        this.discordMessagePattern = discordMessagePattern;
-        this.sendAchievements = sendAchievements;
-        this.sendConnects = sendConnects;
-        this.sendDisconnects = sendDisconnects;
-        this.sendDeaths = sendDeaths;
-        this.sendMessages = sendMessages;
+        this.coalesceWindow = coalesceWindow;
+        this.rateLimitBurst = rateLimitBurst;
+        this.rateLimitPeriod = rateLimitPeriod;
+        this.maxPendingMessages = maxPendingMessages;
+        this.loginTimeout = loginTimeout;
+        this.startupBufferSize = startupBufferSize;
+        this.outageBufferSize = outageBufferSize;
+        this.preferences = preferences;
+        this.name = name;
+        this.guildId = guildId;
+        this.guildSnowflake = SnowflakeSet.parse(guildId);
+        this.channelNames = channels;
+        this.routes = routes;
+        this.metrics = new BridgeMetrics(this::getOutboundQueueDepth, this::getInboundQueueDepth, this::getPendingMessages);
+        this.outboundQueue = new OutboundQueue(queueCapacity, overflowPolicy, this::discard);
+        this.inboundQueue = new InboundQueue(inboundPerTick);
+        this.inboundLimiter = new InboundLimiter(inboundPerSecond, inboundPerAuthor, System.nanoTime());
+        this.deathAggregator = new DeathAggregator(deathWindow, 4, 5, (subject, detail) -> this.dispatch(EventType.DEATH, subject, detail));
+        this.connectionDebouncer = new ConnectionDebouncer(connectionWindow, (type, player) -> {
+            BridgeSettings current = this.settings;
+
+            if (type == EventType.CONNECT ? current.isSendConnects() : current.isSendDisconnects()) {
+                this.dispatch(type, player, null);
+            }
+        }, System.nanoTime());
+
+        this.journal = (journal != null ? journal : openJournal(journalDirectory));
+        this.spillDirectory = journalDirectory;
+
+        // events which have not been delivered before the last shutdown are sent before anything
+        // else once the connection has been established (they bypass the bounded queue and startup
+        // buffer since evicting them would acknowledge them without ever sending them)
+        List<OutboundEvent> recovered = (this.journal != null ? this.journal.drainRecovered() : Collections.emptyList());
+
+        if (!recovered.isEmpty()) {
+            logger.info("Replaying " + recovered.size() + " undelivered events from the outbound journal once connected");
+            recovered.forEach((e) -> this.metrics.queued(e.getType()));
+        }
+
+        this.outboundDispatcher = new OutboundDispatcher(this.outboundQueue, new OutboundSink(recovered));
+        this.outboundDispatcher.start();
+
+        // the console is only mirrored once the bridge has been attached to the server
+        this.consoleChannel = consoleChannel;
+
+        if (consoleChannel != null) {
+            ConsoleBuffer buffer = new ConsoleBuffer(consoleBufferSize);
+
+            this.consoleAppender = new ConsoleAppender("Discord-" + name, buffer, consoleLevel);
+            this.consoleStreamer = new ConsoleStreamer(buffer, consoleLinesPerMinute, rateLimitBurst, rateLimitPeriod);
+        } else {
+            this.consoleAppender = null;
+            this.consoleStreamer = null;
+        }
+
+        this.commandChannelName = commandChannel;
+        this.remoteConsole = (commandChannel != null ? new RemoteConsole(commandsPerMinute, commandBudget, commandPermissionLevel) : null);
+    }
+
+    /**
+     * Opens the outbound journal within the specified directory.
+     *
+     * @param directory a directory or null if journaling has been disabled.
+     * @return a journal or null if disabled or inaccessible.
+     */
+    @Nullable
+    private static OutboundJournal openJournal(@Nullable File directory) {
+        if (directory == null) {
+            return null;
+        }
 
         try {
-            this.jda = new JDABuilder()
-                    .setBotToken(botToken)
-                    .setAutoReconnect(true)
-                    .setAudioEnabled(false)
-                    .addListener(this.discordListener)
-                    .buildBlocking();
-        } catch (LoginException ex) {
-            throw new IllegalArgumentException("Could not authenticate with Discord: " + ex.getMessage(), ex);
-        } catch (InterruptedException ex) {
-            throw new RuntimeException("Interrupted while awaiting Discord authentication: " + ex.getMessage(), ex);
+            return new OutboundJournal(directory, OutboundJournal.DEFAULT_SEGMENT_SIZE);
+        } catch (IOException ex) {
+            logger.error("Could not open outbound journal: " + ex.getMessage() + ": Undelivered events will not be retained", ex);
+            return null;
         }
+    }
+
+    /**
+     * Retrieves the amount of events which are waiting for the sender thread.
+     *
+     * @return an amount of events.
+     */
+    private int getOutboundQueueDepth() {
+        return this.outboundQueue.size();
+    }
+
+    /**
+     * Retrieves the amount of Discord messages which are waiting for the next server tick.
+     *
+     * @return an amount of messages.
+     */
+    private int getInboundQueueDepth() {
+        return this.inboundQueue.size();
+    }
 
-        this.botId = this.jda.getSelfInfo().getId();
-        this.guild = this.jda.getGuildById(guildId);
+    /**
+     * Retrieves the amount of messages which are waiting for a rate limited channel.
+     *
+     * @return an amount of messages.
+     */
+    private int getPendingMessages() {
+        SendScheduler scheduler = this.scheduler;
+        return (scheduler == null ? 0 : scheduler.getPendingMessages());
+    }
 
-        if (this.guild == null) {
-            throw new IllegalArgumentException("No such guild: " + guildId);
+    /**
+     * Hooks into Forge and attaches this bridge to a (possibly not yet established) Discord
+     * connection.
+     *
+     * @param connection a connection.
+     */
+    private void attach(@Nonnull DiscordConnection connection) {
+        // events are buffered by the sender thread until the connection has been established
+        MinecraftForge.EVENT_BUS.register(this.forgeListener);
+        this.metrics.register(this.name);
+
+        if (this.consoleStreamer != null) {
+            this.consoleAppender.register();
+            this.consoleStreamer.start();
+        }
+
+        this.connection = connection;
+        connection.attach(this);
+    }
+
+    /**
+     * Locates the bridged guild and channels once the shard which serves this bridge has become
+     * ready and releases all events which have been held back so far.
+     *
+     * When the guild is not available (yet), another attempt is made once the guild becomes
+     * available or the connection is re-established.
+     *
+     * @param jda a ready JDA instance.
+     */
+    void initialize(@Nonnull JDA jda) {
+        if (this.initialized.get()) {
+            return;
+        }
+
+        final Guild guild = jda.getGuildById(this.guildId);
+
+        if (guild == null) {
+            logger.error("No such guild: " + this.guildId + ": Waiting for the guild to become available");
+            return;
+        }
+
+        if (!this.initialized.compareAndSet(false, true)) {
+            return;
         }
 
         // unify channel names before attempting to locate them within the Guild
-        final Set<String> unifiedChannels = channels.stream()
+        final Set<String> unifiedChannels = this.channelNames.stream()
                 .map((c) -> (c.startsWith("#") ? c.substring(1) : c).toLowerCase())
                 .collect(Collectors.toSet());
 
         // cache a list of known channels
-        this.channels = Collections.unmodifiableSet(
-                this.guild.getTextChannels().stream()
+        final Set<TextChannel> channels = Collections.unmodifiableSet(
+                guild.getTextChannels().stream()
                         .filter((c) -> unifiedChannels.contains(c.getName()))
                         .collect(Collectors.toSet())
         );
+
+        // resolve the outbound routes (which may include channels that are not bridged otherwise)
+        final Map<String, TextChannel> knownChannels = new HashMap<>();
+        guild.getTextChannels().forEach((c) -> knownChannels.putIfAbsent(c.getName(), c));
+
+        final Map<EventType, List<TextChannel>> routes = new EnumMap<>(EventType.class);
+        this.routes.forEach((type, names) -> routes.put(type, names.stream()
+                .map(knownChannels::get)
+                .filter((c) -> c != null)
+                .collect(Collectors.toList())));
+
+        if (this.consoleStreamer != null) {
+            TextChannel consoleChannel = knownChannels.get(this.consoleChannel);
+
+            if (consoleChannel == null) {
+                logger.error("No such console channel: #" + this.consoleChannel);
+            }
+
+            this.consoleStreamer.setChannel(consoleChannel);
+        }
+
+        if (this.remoteConsole != null) {
+            this.commandChannel = knownChannels.get(this.commandChannelName);
+
+            if (this.commandChannel == null) {
+                logger.error("No such command channel: #" + this.commandChannelName);
+            }
+        }
+
+        // index all members once so that mentions may be resolved without scanning the guild
+        for (User user : guild.getUsers()) {
+            this.mentions.put(user.getId(), user.getUsername(), guild.getNicknameForUser(user));
+        }
+
+        this.botId = jda.getSelfInfo().getId();
+        this.guild = guild;
+        this.channels = channels;
+        this.channelIds = SnowflakeSet.of(channels.stream().map(TextChannel::getId).collect(Collectors.toList()));
+
+        // publishing the scheduler releases all events which have been buffered so far
+        this.scheduler = new SendScheduler(routes, this.metrics, this.deliveryListener, this.enableTTS, this.coalesceWindow, this.rateLimitBurst, this.rateLimitPeriod, this.maxPendingMessages);
+    }
+
+    /**
+     * Applies a new configuration to this bridge without interrupting its connection.
+     *
+     * Settings such as message formats or the types of bridged events are swapped in atomically.
+     * When the new configuration also changes the bridge's layout (for instance its channels,
+     * queues or rate limits), the bridge is left untouched and has to be rebuilt instead.
+     *
+     * @param builder a builder which carries the new configuration.
+     * @param guildId a guild identifier.
+     * @return true if applied, false if the bridge needs to be rebuilt.
+     */
+    boolean reconfigure(@Nonnull Builder builder, @Nonnull String guildId) {
+        Set<String> channels = ImmutableSet.copyOf(builder.channels);
+
+        if (!this.layout.equals(builder.layout(guildId, channels, builder.compileRoutes(channels)))) {
+            return false;
+        }
+
+        this.settings = builder.buildSettings();
+        this.bypassCache.clear();
+        return true;
     }
 
     /**
@@ -145,18 +393,171 @@ public class ChatBridge {
         return new Builder();
     }
 
+    /**
+     * Retrieves a snapshot of the send state of all bridged channels.
+     *
+     * @return a list of channel states.
+     */
+    @Nonnull
+    public List<ChannelState> getChannelStates() {
+        SendScheduler scheduler = this.scheduler;
+
+        if (scheduler == null) {
+            return Collections.emptyList();
+        }
+
+        return scheduler.getStates();
+    }
+
+    /**
+     * Retrieves the listener which handles the Discord events of this bridge.
+     *
+     * @return a listener.
+     */
+    @Nonnull
+    EventListener getDiscordListener() {
+        return this.discordListener;
+    }
+
+    /**
+     * Retrieves the bridged guild's identifier.
+     *
+     * @return a snowflake or -1 if the configured identifier is invalid.
+     */
+    long getGuildSnowflake() {
+        return this.guildSnowflake;
+    }
+
+    /**
+     * Retrieves the name which identifies this bridge (for instance in statistics).
+     *
+     * @return a name.
+     */
+    @Nonnull
+    public String getName() {
+        return this.name;
+    }
+
+    /**
+     * Retrieves the statistics which have been collected by this bridge.
+     *
+     * @return a set of metrics.
+     */
+    @Nonnull
+    public BridgeMetricsMXBean getMetrics() {
+        return this.metrics;
+    }
+
+    /**
+     * Checks whether the connection to Discord has been established and all bridged channels have
+     * been located.
+     *
+     * @return true if ready, false otherwise.
+     */
+    public boolean isReady() {
+        return this.scheduler != null;
+    }
+
+    /**
+     * Detaches this bridge from Forge as well as Discord and stops the sender thread once all
+     * pending events have been passed on to Discord.
+     *
+     * The shared connection itself is left untouched.
+     */
+    public void shutdown() {
+        this.detach();
+        this.stop(true);
+    }
+
+    /**
+     * Detaches this bridge from Forge as well as Discord right away and stops the sender thread in
+     * the background so that the bridge may be replaced without waiting for Discord.
+     *
+     * When the successor uses the same journal directory, the journal is handed over rather than
+     * closed (the successor would otherwise have to wait for this bridge to release it).
+     *
+     * @param journalDirectory the successor's journal directory or null if journaling has been
+     *                         disabled.
+     * @return the journal or null if it has not been handed over.
+     */
+    @Nullable
+    OutboundJournal retire(@Nullable File journalDirectory) {
+        final OutboundJournal journal = (this.journal != null && this.journal.getDirectory().equals(journalDirectory) ? this.journal : null);
+
+        this.detach();
+
+        Thread thread = new Thread(() -> this.stop(journal == null), "Discord Shutdown (" + this.name + ")");
+        thread.start();
+
+        return journal;
+    }
+
+    /**
+     * Detaches this bridge from Forge, Discord, the console and JMX.
+     */
+    private void detach() {
+        MinecraftForge.EVENT_BUS.unregister(this.forgeListener);
+        this.deathAggregator.flush();
+        this.connectionDebouncer.flush();
+        DiscordConnection connection = this.connection;
+
+        if (connection != null) {
+            connection.detach(this);
+        }
+
+        if (this.consoleAppender != null) {
+            this.consoleAppender.unregister();
+        }
+
+        this.metrics.unregister();
+    }
+
+    /**
+     * Stops the sender thread once all pending events have been passed on to Discord.
+     *
+     * @param closeJournal true if the journal is closed afterwards, false if it has been handed
+     *                     over to another bridge.
+     */
+    private void stop(boolean closeJournal) {
+        try {
+            this.outboundDispatcher.shutdown(5, TimeUnit.SECONDS);
+
+            // the journal has to remain open until Discord has confirmed the final messages since
+            // their events would be replayed on the next start otherwise
+            SendScheduler scheduler = this.scheduler;
+
+            if (scheduler != null && !scheduler.awaitInFlight(5, TimeUnit.SECONDS)) {
+                logger.warn("Discord did not confirm all outstanding messages in time: Unconfirmed events will be sent again on the next start");
+            }
+
+            if (this.consoleStreamer != null) {
+                this.consoleStreamer.shutdown(5, TimeUnit.SECONDS);
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (this.journal != null && closeJournal) {
+            this.journal.close();
+        }
+    }
+
     /**
      * Dispatches a message to the Discord server.
      *
-     * @param message a message.
+     * <strong>Note:</strong> Messages passed to this method bypass the outbound queue as well as
+     * the per-channel rate limits.
+     *
+     * @param builder a message builder.
      */
     public void sendMessage(@Nonnull MessageBuilder builder) {
         builder.setTTS(this.enableTTS);
         final Message message = builder.build();
 
-        this.channels.forEach((c) -> c.sendMessageAsync(message, new Consumer<Message>() {
-            @Override
-            public void accept(Message message) {
+        this.channels.forEach((c) -> c.sendMessageAsync(message, (m) -> {
+            // JDA reports rejected messages by passing null to the callback
+            if (m == null) {
+                logger.warn("Discord rejected a message to #" + c.getName());
             }
         }));
     }
@@ -168,8 +569,242 @@ public class ChatBridge {
      * @param message a message.
      */
     public void sendMessage(@Nonnull ICommandSender sender, @Nonnull String message) {
-        // TODO: Add support for mentions
-        this.sendMessage(new MessageBuilder().appendFormat(this.discordMessagePattern, sender.getDisplayName().getUnformattedText(), message));
+        // mentions are resolved when the message is rendered on the sender thread
+        String name = (sender instanceof EntityPlayer ? this.displayNames.get((EntityPlayer) sender) : FormattingTranslator.translate(sender.getDisplayName()));
+        this.dispatch(EventType.CHAT, name, FormattingTranslator.translate(message));
+    }
+
+    /**
+     * Sends a server status message to the Discord server.
+     *
+     * @param message a message.
+     */
+    public void sendStatus(@Nonnull String message) {
+        this.dispatch(EventType.STATUS, null, message);
+    }
+
+    /**
+     * Checks whether a message which has been posted to the specified channel is to be forwarded
+     * to Minecraft.
+     *
+     * This check is performed before any other work takes place and does not allocate.
+     *
+     * @param guildId   a guild identifier.
+     * @param channelId a channel identifier.
+     * @return true if bridged, false otherwise.
+     */
+    boolean isBridged(@Nonnull String guildId, @Nonnull String channelId) {
+        return SnowflakeSet.parse(guildId) == this.guildSnowflake && this.channelIds.contains(channelId);
+    }
+
+    /**
+     * Handles a message which has been received from Discord.
+     *
+     * @param authorId   the author's identifier.
+     * @param bot        indicates whether the author is a bot.
+     * @param privileged indicates whether the author is exempt from the inbound rate limits.
+     * @param authorName the author's display name.
+     * @param content    the message content (including its markdown).
+     */
+    void receive(@Nonnull String authorId, boolean bot, boolean privileged, @Nonnull String authorName, @Nonnull String content) {
+        final BridgeSettings settings = this.settings;
+
+        if (bot && settings.isIgnoreBots()) {
+            this.metrics.inboundDropped();
+            return;
+        }
+
+        if (authorId.equals(this.botId)) {
+            return;
+        }
+
+        if (!privileged && !this.inboundLimiter.tryAcquire(authorId, System.nanoTime())) {
+            this.metrics.inboundLimited();
+            return;
+        }
+
+        // messages are delivered in batches on the next server tick (see MinecraftForgeListener#onServerTick)
+        this.metrics.inboundReceived();
+        this.inboundQueue.offer(settings.getMinecraftMessagePattern().renderMarkdown(Emoji.toShortcodes(authorName), content));
+    }
+
+    /**
+     * Delivers the messages which have been received from Discord since the last tick.
+     *
+     * @param consumer a consumer which delivers the messages to the players.
+     * @return the amount of delivered messages.
+     */
+    int deliverInbound(@Nonnull Consumer<ITextComponent> consumer) {
+        int delivered = this.inboundQueue.drain(consumer);
+        this.metrics.inboundDelivered(delivered);
+
+        // rate limited messages are announced in a single line at most once per second
+        int hidden = this.inboundLimiter.takeHidden(System.nanoTime());
+
+        if (hidden != 0) {
+            consumer.accept(new TextComponentString("[Discord] " + hidden + (hidden == 1 ? " message has" : " messages have") + " been hidden due to rate limits"));
+        }
+
+        return delivered;
+    }
+
+    /**
+     * Sends a single line which has been received from Discord to all players who wish to see it.
+     *
+     * Every recipient is passed the same component rather than a copy of it. Unlike
+     * {@link PlayerList#sendChatMsg(ITextComponent)}, the line is only written to the server log
+     * when enabled and as long as the log rate limit permits it.
+     *
+     * @param players   the server's player list.
+     * @param component a component.
+     */
+    private void deliver(@Nonnull PlayerList players, @Nonnull ITextComponent component) {
+        if (this.preferences != null) {
+            this.preferences.send(players, component);
+        } else {
+            for (EntityPlayerMP player : players.getPlayerList()) {
+                player.addChatMessage(component);
+            }
+        }
+
+        final int rate = this.settings.getInboundLogRate();
+
+        if (rate == 0) {
+            return;
+        }
+
+        final long now = System.nanoTime();
+
+        // the bucket is replaced when a reload changes the rate
+        if (this.inboundLogBucket == null || this.inboundLogBucket.getCapacity() != rate) {
+            this.inboundLogBucket = new TokenBucket(rate, TimeUnit.MINUTES.toMillis(1), now);
+        }
+
+        if (!this.inboundLogBucket.tryAcquire(now)) {
+            ++this.inboundLogSkipped;
+            return;
+        }
+
+        if (this.inboundLogSkipped != 0) {
+            logger.info("[Discord] " + this.inboundLogSkipped + " lines have not been logged due to rate limits");
+            this.inboundLogSkipped = 0;
+        }
+
+        logger.info("[Discord] " + component.getUnformattedText());
+    }
+
+    /**
+     * Checks whether a Discord user holds one of the roles which are exempt from the inbound rate
+     * limits.
+     *
+     * The result is cached per user until their roles change.
+     *
+     * @param guild a guild.
+     * @param user  a user.
+     * @return true if exempt, false otherwise.
+     */
+    private boolean isPrivileged(@Nonnull Guild guild, @Nonnull User user) {
+        final Set<String> bypassRoles = this.settings.getBypassRoles();
+
+        if (bypassRoles.isEmpty()) {
+            return false;
+        }
+
+        return this.bypassCache.computeIfAbsent(user.getId(), (id) -> guild.getRolesForUser(user).stream()
+                .anyMatch((r) -> bypassRoles.contains(r.getName().toLowerCase())));
+    }
+
+    /**
+     * Checks whether a Discord user holds one of the roles which are permitted to execute server
+     * commands.
+     *
+     * @param guild a guild.
+     * @param user  a user.
+     * @return true if permitted, false otherwise.
+     */
+    private boolean isCommander(@Nonnull Guild guild, @Nonnull User user) {
+        final Set<String> commandRoles = this.settings.getCommandRoles();
+
+        return !commandRoles.isEmpty() && guild.getRolesForUser(user).stream()
+                .anyMatch((r) -> commandRoles.contains(r.getName().toLowerCase()));
+    }
+
+    /**
+     * Queues every line of a message from the command channel as a separate server command.
+     *
+     * @param channel the command channel.
+     * @param author  the author's display name.
+     * @param content the raw message content.
+     */
+    private void submitCommands(@Nonnull TextChannel channel, @Nonnull String author, @Nonnull String content) {
+        for (String line : content.split("\n")) {
+            line = line.trim();
+
+            if (!line.isEmpty() && !this.remoteConsole.submit(channel, author, line)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Hands an event to the sender thread.
+     *
+     * @param type    an event type.
+     * @param subject an event subject.
+     * @param detail  an event detail.
+     */
+    private void dispatch(@Nonnull EventType type, @Nullable String subject, @Nullable String detail) {
+        OutboundEvent event = new OutboundEvent(type, subject, detail);
+
+        // events are journaled before they are handed over so that their position is visible to
+        // the sender thread
+        if (this.journal != null) {
+            this.journal.append(event);
+        }
+
+        if (this.outboundQueue.offer(event)) {
+            this.metrics.queued(type);
+        }
+    }
+
+    /**
+     * Records an event which has been discarded deliberately (for instance due to the overflow
+     * policy) and will thus never be retried.
+     *
+     * @param event an event.
+     */
+    private void discard(@Nonnull OutboundEvent event) {
+        this.metrics.dropped(event.getType());
+
+        if (this.journal != null) {
+            this.journal.acknowledge(event);
+        }
+    }
+
+    /**
+     * Renders a queued event into a single line of text.
+     *
+     * @param event an event.
+     * @return a line.
+     */
+    @Nonnull
+    private String render(@Nonnull OutboundEvent event) {
+        final BridgeSettings settings = this.settings;
+
+        switch (event.getType()) {
+            case ACHIEVEMENT:
+                return settings.getDiscordAchievementPattern().render(event.getSubject(), event.getDetail());
+            case CONNECT:
+                return settings.getDiscordJoinPattern().render(event.getSubject());
+            case DISCONNECT:
+                return settings.getDiscordPartPattern().render(event.getSubject());
+            case DEATH:
+                return settings.getDiscordDeathPattern().render(event.getSubject(), event.getDetail());
+            case CHAT:
+                return settings.getDiscordMessagePattern().render(event.getSubject(), this.mentions.resolve(String.valueOf(event.getDetail())));
+            default:
+                return String.valueOf(event.getDetail());
+        }
     }
 
     /**
@@ -178,8 +813,12 @@ public class ChatBridge {
     public static class Builder {
         // Bot Settings
         private Set<String> channels = new HashSet<>();
+        private Set<String> bypassRoles = new HashSet<>();
+        private Set<String> commandRoles = new HashSet<>();
+        private Map<EventType, Set<String>> routes = new EnumMap<>(EventType.class);
 
         // Settings
+        private String name;
         private boolean enableTTS = false;
         private boolean ignoreBots = false;
         private boolean sendAchievements = true;
@@ -187,6 +826,32 @@ public class ChatBridge {
         private boolean sendDisconnects = true;
         private boolean sendDeaths = true;
         private boolean sendMessages = true;
+        private int queueCapacity = 1024;
+        private OverflowPolicy overflowPolicy = OverflowPolicy.DROP_OLDEST;
+        private long coalesceWindow = 1000;
+        private int rateLimitBurst = 5;
+        private long rateLimitPeriod = 5000;
+        private int maxPendingMessages = 10;
+        private int inboundPerTick = 20;
+        private long loginTimeout = 30000;
+        private int startupBufferSize = 256;
+        private long deathWindow = 3000;
+        private long connectionWindow = 5000;
+        private File journalDirectory;
+        private int outageBufferSize = 256;
+        private int outageTranscriptLines = 50;
+        private int inboundPerSecond = 10;
+        private int inboundPerAuthor = 3;
+        private int inboundLogRate = 30;
+        private ChatPreferences preferences;
+        private String consoleChannel;
+        private Level consoleLevel = Level.INFO;
+        private int consoleLinesPerMinute = 300;
+        private int consoleBufferSize = 1024;
+        private String commandChannel;
+        private int commandsPerMinute = 10;
+        private long commandBudget = 5;
+        private int commandPermissionLevel = 4;
 
         // Patterns
         private String minecraftMessagePattern = "<%1$s@Discord> %2$s";
@@ -196,21 +861,117 @@ public class ChatBridge {
         private String discordDeathPattern = ":skull_crossbones: %2$s";
         private String discordMessagePattern = ":speech_balloon: <%1$s> %2$s";
 
-        private Builder() {
+        private Builder() {
+        }
+
+        /**
+         * Builds a new chat bridge instance.
+         *
+         * All message patterns are compiled into templates at this point in order to avoid parsing
+         * them again for every single message.
+         *
+         * Events which occur before the connection to Discord has been established are held back
+         * until the bridge is ready.
+         *
+         * @param connection a shared connection.
+         * @param guildId    a guild identifier.
+         * @return a chat bridge instance.
+         */
+        @Nonnull
+        public ChatBridge build(@Nonnull DiscordConnection connection, @Nonnull String guildId) {
+            ChatBridge bridge = this.buildDetached(guildId, null);
+            bridge.attach(connection);
+            return bridge;
+        }
+
+        /**
+         * Builds a new chat bridge instance which replaces a running bridge.
+         *
+         * The running bridge is detached right away and hands its journal over to the new instance
+         * while it finishes passing its pending events on to Discord in the background.
+         *
+         * @param predecessor the bridge to replace.
+         * @param connection  a shared connection.
+         * @param guildId     a guild identifier.
+         * @return a chat bridge instance.
+         */
+        @Nonnull
+        ChatBridge replace(@Nonnull ChatBridge predecessor, @Nonnull DiscordConnection connection, @Nonnull String guildId) {
+            ChatBridge bridge = this.buildDetached(guildId, predecessor.retire(this.journalDirectory));
+            bridge.attach(connection);
+            return bridge;
+        }
+
+        /**
+         * Builds a new chat bridge instance which is neither hooked into Forge nor connected to
+         * Discord (for instance in order to measure its performance in isolation).
+         *
+         * @param guildId a guild identifier.
+         * @return a chat bridge instance.
+         */
+        @Nonnull
+        ChatBridge buildDetached(@Nonnull String guildId) {
+            return this.buildDetached(guildId, null);
+        }
+
+        /**
+         * Builds a new chat bridge instance which is neither hooked into Forge nor connected to
+         * Discord.
+         *
+         * @param guildId a guild identifier.
+         * @param journal a journal which has been handed over by a previous instance or null to
+         *                open the configured journal directory.
+         * @return a chat bridge instance.
+         */
+        @Nonnull
+        private ChatBridge buildDetached(@Nonnull String guildId, @Nullable OutboundJournal journal) {
+            Set<String> channels = ImmutableSet.copyOf(this.channels);
+            Map<EventType, Set<String>> routes = this.compileRoutes(channels);
+
+            return new ChatBridge((this.name != null ? this.name : guildId), guildId, this.layout(guildId, channels, routes), channels, routes, this.enableTTS, this.queueCapacity, this.overflowPolicy, this.coalesceWindow, this.rateLimitBurst, this.rateLimitPeriod, this.maxPendingMessages, this.inboundPerTick, this.loginTimeout, this.startupBufferSize, this.deathWindow, this.connectionWindow, this.journalDirectory, journal, this.outageBufferSize, this.inboundPerSecond, this.inboundPerAuthor, this.preferences, this.consoleChannel, this.consoleLevel, this.consoleLinesPerMinute, this.consoleBufferSize, this.commandChannel, this.commandsPerMinute, this.commandBudget, this.commandPermissionLevel, this.buildSettings());
+        }
+
+        /**
+         * Compiles the configured routes into an immutable map which contains an entry for every
+         * event type.
+         *
+         * @param channels the set of bridged channels.
+         * @return a map of routes.
+         */
+        @Nonnull
+        private Map<EventType, Set<String>> compileRoutes(@Nonnull Set<String> channels) {
+            Map<EventType, Set<String>> routes = new EnumMap<>(EventType.class);
+
+            // event types without an explicit route are sent to all bridged channels
+            for (EventType type : EventType.values()) {
+                Set<String> route = this.routes.get(type);
+                routes.put(type, (route != null ? ImmutableSet.copyOf(route) : channels));
+            }
+
+            return Collections.unmodifiableMap(routes);
         }
 
         /**
-         * Builds a new chat bridge instance.
+         * Collects all settings which cannot be changed without rebuilding the bridge.
          *
-         * @param botToken a bot token.
          * @param guildId  a guild identifier.
-         * @return a chat bridge instance.
+         * @param channels the set of bridged channels.
+         * @param routes   the compiled routes.
+         * @return a list of settings which may be compared to the layout of a running bridge.
+         */
+        @Nonnull
+        private List<Object> layout(@Nonnull String guildId, @Nonnull Set<String> channels, @Nonnull Map<EventType, Set<String>> routes) {
+            return Arrays.asList(guildId, channels, routes, this.enableTTS, this.queueCapacity, this.overflowPolicy, this.coalesceWindow, this.rateLimitBurst, this.rateLimitPeriod, this.maxPendingMessages, this.inboundPerTick, this.loginTimeout, this.startupBufferSize, this.deathWindow, this.connectionWindow, this.journalDirectory, this.outageBufferSize, this.inboundPerSecond, this.inboundPerAuthor, this.consoleChannel, this.consoleLevel, this.consoleLinesPerMinute, this.consoleBufferSize, this.commandChannel, this.commandsPerMinute, this.commandBudget, this.commandPermissionLevel);
+        }
+
+        /**
+         * Builds a snapshot of all settings which may be replaced while the bridge is running.
          *
-         * @throws IllegalArgumentException when the provided login details are invalid.
+         * @return a snapshot.
          */
         @Nonnull
-        public ChatBridge build(@Nonnull String botToken, @Nonnull String guildId) {
-            return new ChatBridge(botToken, guildId, ImmutableSet.copyOf(this.channels), this.enableTTS, this.ignoreBots, this.sendAchievements, this.sendConnects, this.sendDisconnects, this.sendDeaths, this.sendMessages, this.minecraftMessagePattern, this.discordJoinPattern, this.discordPartPattern, this.discordAchievementPattern, this.discordDeathPattern, this.discordMessagePattern);
+        private BridgeSettings buildSettings() {
+            return new BridgeSettings(this.ignoreBots, this.sendAchievements, this.sendConnects, this.sendDisconnects, this.sendDeaths, this.sendMessages, this.outageTranscriptLines, this.inboundLogRate, ImmutableSet.copyOf(this.bypassRoles), ImmutableSet.copyOf(this.commandRoles), MessageTemplate.compile(this.minecraftMessagePattern), MessageTemplate.compile(this.discordJoinPattern), MessageTemplate.compile(this.discordPartPattern), MessageTemplate.compile(this.discordAchievementPattern), MessageTemplate.compile(this.discordDeathPattern), MessageTemplate.compile(this.discordMessagePattern));
         }
 
         /**
@@ -256,6 +1017,114 @@ public class ChatBridge {
             return this;
         }
 
+        /**
+         * Routes an event type to a channel. Event types without an explicit route are sent to
+         * all bridged channels.
+         *
+         * @param type    an event type.
+         * @param channel a channel.
+         * @return a reference to this builder.
+         */
+        @Nonnull
+        public Builder addRoute(@Nonnull EventType type, @Nonnull String channel) {
+            if (channel.startsWith("#")) {
+                channel = channel.substring(1);
+            }
+
+            if (!channel.isEmpty()) {
+                this.routes.computeIfAbsent(type, (t) -> new HashSet<>()).add(channel.toLowerCase());
+            }
+
+            return this;
+        }
+
+        /**
+         * Routes an event type to an array of channels.
+         *
+         * @param type     an event type.
+         * @param channels an array of channels.
+         * @return a reference to this builder.
+         */
+        @Nonnull
+        public Builder addRoute(@Nonnull EventType type, @Nonnull String[] channels) {
+            for (String channel : channels) {
+                this.addRoute(type, channel);
+            }
+
+            return this;
+        }
+
+        /**
+         * Adds a role whose members are exempt from the inbound rate limits.
+         *
+         * @param role a role name.
+         * @return a reference to this builder.
+         */
+        @Nonnull
+        public Builder addBypassRole(@Nonnull String role) {
+            if (!role.isEmpty()) {
+                this.bypassRoles.add(role.toLowerCase());
+            }
+
+            return this;
+        }
+
+        /**
+         * Adds an array of roles whose members are exempt from the inbound rate limits.
+         *
+         * @param roles an array of role names.
+         * @return a reference to this builder.
+         */
+        @Nonnull
+        public Builder addBypassRole(@Nonnull String[] roles) {
+            for (String role : roles) {
+                this.addBypassRole(role);
+            }
+
+            return this;
+        }
+
+        /**
+         * Adds a role whose members are permitted to execute server commands.
+         *
+         * @param role a role name.
+         * @return a reference to this builder.
+         */
+        @Nonnull
+        public Builder addCommandRole(@Nonnull String role) {
+            if (!role.isEmpty()) {
+                this.commandRoles.add(role.toLowerCase());
+            }
+
+            return this;
+        }
+
+        /**
+         * Adds an array of roles whose members are permitted to execute server commands.
+         *
+         * @param roles an array of role names.
+         * @return a reference to this builder.
+         */
+        @Nonnull
+        public Builder addCommandRole(@Nonnull String[] roles) {
+            for (String role : roles) {
+                this.addCommandRole(role);
+            }
+
+            return this;
+        }
+
+        @Nullable
+        public String name() {
+            return this.name;
+        }
+
+        @Nonnull
+        public Builder name(@Nullable String name) {
+            this.name = name;
+            return this;
+        }
+
         public boolean enableTTS() {
             return this.enableTTS;
         }
@@ -316,13 +1185,299 @@ public class ChatBridge {
             return this;
         }
 
-        public boolean sendMessages() {
-            return this.sendMessages;
+        public boolean sendMessages() {
+            return this.sendMessages;
+        }
+
+        @Nonnull
+        public Builder sendMessages(boolean sendMessages) {
+            this.sendMessages = sendMessages;
+            return this;
+        }
+
+        public int queueCapacity() {
+            return this.queueCapacity;
+        }
+
+        @Nonnull
+        public Builder queueCapacity(int queueCapacity) {
+            this.queueCapacity = queueCapacity;
+            return this;
+        }
+
+        @Nonnull
+        public OverflowPolicy overflowPolicy() {
+            return this.overflowPolicy;
+        }
+
+        @Nonnull
+        public Builder overflowPolicy(@Nonnull OverflowPolicy overflowPolicy) {
+            this.overflowPolicy = overflowPolicy;
+            return this;
+        }
+
+        public long coalesceWindow() {
+            return this.coalesceWindow;
+        }
+
+        @Nonnull
+        public Builder coalesceWindow(long coalesceWindow) {
+            this.coalesceWindow = coalesceWindow;
+            return this;
+        }
+
+        public int rateLimitBurst() {
+            return this.rateLimitBurst;
+        }
+
+        @Nonnull
+        public Builder rateLimitBurst(int rateLimitBurst) {
+            this.rateLimitBurst = rateLimitBurst;
+            return this;
+        }
+
+        public long rateLimitPeriod() {
+            return this.rateLimitPeriod;
+        }
+
+        @Nonnull
+        public Builder rateLimitPeriod(long rateLimitPeriod) {
+            this.rateLimitPeriod = rateLimitPeriod;
+            return this;
+        }
+
+        public int maxPendingMessages() {
+            return this.maxPendingMessages;
+        }
+
+        @Nonnull
+        public Builder maxPendingMessages(int maxPendingMessages) {
+            this.maxPendingMessages = maxPendingMessages;
+            return this;
+        }
+
+        public int inboundPerTick() {
+            return this.inboundPerTick;
+        }
+
+        @Nonnull
+        public Builder inboundPerTick(int inboundPerTick) {
+            this.inboundPerTick = inboundPerTick;
+            return this;
+        }
+
+        public long loginTimeout() {
+            return this.loginTimeout;
+        }
+
+        @Nonnull
+        public Builder loginTimeout(long loginTimeout) {
+            this.loginTimeout = loginTimeout;
+            return this;
+        }
+
+        public int startupBufferSize() {
+            return this.startupBufferSize;
+        }
+
+        @Nonnull
+        public Builder startupBufferSize(int startupBufferSize) {
+            this.startupBufferSize = startupBufferSize;
+            return this;
+        }
+
+        public long deathWindow() {
+            return this.deathWindow;
+        }
+
+        @Nonnull
+        public Builder deathWindow(long deathWindow) {
+            this.deathWindow = deathWindow;
+            return this;
+        }
+
+        public long connectionWindow() {
+            return this.connectionWindow;
+        }
+
+        @Nonnull
+        public Builder connectionWindow(long connectionWindow) {
+            this.connectionWindow = connectionWindow;
+            return this;
+        }
+
+        @Nullable
+        public File journalDirectory() {
+            return this.journalDirectory;
+        }
+
+        @Nonnull
+        public Builder journalDirectory(@Nullable File journalDirectory) {
+            this.journalDirectory = journalDirectory;
+            return this;
+        }
+
+        public int outageBufferSize() {
+            return this.outageBufferSize;
+        }
+
+        @Nonnull
+        public Builder outageBufferSize(int outageBufferSize) {
+            this.outageBufferSize = outageBufferSize;
+            return this;
+        }
+
+        public int outageTranscriptLines() {
+            return this.outageTranscriptLines;
+        }
+
+        @Nonnull
+        public Builder outageTranscriptLines(int outageTranscriptLines) {
+            this.outageTranscriptLines = outageTranscriptLines;
+            return this;
+        }
+
+        public int inboundPerSecond() {
+            return this.inboundPerSecond;
+        }
+
+        @Nonnull
+        public Builder inboundPerSecond(int inboundPerSecond) {
+            this.inboundPerSecond = inboundPerSecond;
+            return this;
+        }
+
+        public int inboundPerAuthor() {
+            return this.inboundPerAuthor;
+        }
+
+        @Nonnull
+        public Builder inboundPerAuthor(int inboundPerAuthor) {
+            this.inboundPerAuthor = inboundPerAuthor;
+            return this;
+        }
+
+        public int inboundLogRate() {
+            return this.inboundLogRate;
+        }
+
+        @Nonnull
+        public Builder inboundLogRate(int inboundLogRate) {
+            this.inboundLogRate = inboundLogRate;
+            return this;
+        }
+
+        @Nullable
+        ChatPreferences preferences() {
+            return this.preferences;
+        }
+
+        @Nonnull
+        Builder preferences(@Nullable ChatPreferences preferences) {
+            this.preferences = preferences;
+            return this;
+        }
+
+        @Nullable
+        public String consoleChannel() {
+            return this.consoleChannel;
+        }
+
+        /**
+         * Selects the channel which mirrors the server console.
+         *
+         * @param consoleChannel a channel name or null to disable the console mirror.
+         * @return a reference to this builder.
+         */
+        @Nonnull
+        public Builder consoleChannel(@Nullable String consoleChannel) {
+            if (consoleChannel != null && consoleChannel.startsWith("#")) {
+                consoleChannel = consoleChannel.substring(1);
+            }
+
+            this.consoleChannel = (consoleChannel == null || consoleChannel.isEmpty() ? null : consoleChannel.toLowerCase());
+            return this;
+        }
+
+        @Nonnull
+        public Level consoleLevel() {
+            return this.consoleLevel;
+        }
+
+        @Nonnull
+        public Builder consoleLevel(@Nonnull Level consoleLevel) {
+            this.consoleLevel = consoleLevel;
+            return this;
+        }
+
+        public int consoleLinesPerMinute() {
+            return this.consoleLinesPerMinute;
+        }
+
+        @Nonnull
+        public Builder consoleLinesPerMinute(int consoleLinesPerMinute) {
+            this.consoleLinesPerMinute = consoleLinesPerMinute;
+            return this;
+        }
+
+        public int consoleBufferSize() {
+            return this.consoleBufferSize;
+        }
+
+        @Nonnull
+        public Builder consoleBufferSize(int consoleBufferSize) {
+            this.consoleBufferSize = consoleBufferSize;
+            return this;
+        }
+
+        @Nullable
+        public String commandChannel() {
+            return this.commandChannel;
+        }
+
+        /**
+         * Selects the channel which accepts server commands.
+         *
+         * @param commandChannel a channel name or null to disable remote commands.
+         * @return a reference to this builder.
+         */
+        @Nonnull
+        public Builder commandChannel(@Nullable String commandChannel) {
+            if (commandChannel != null && commandChannel.startsWith("#")) {
+                commandChannel = commandChannel.substring(1);
+            }
+
+            this.commandChannel = (commandChannel == null || commandChannel.isEmpty() ? null : commandChannel.toLowerCase());
+            return this;
+        }
+
+        public int commandsPerMinute() {
+            return this.commandsPerMinute;
+        }
+
+        @Nonnull
+        public Builder commandsPerMinute(int commandsPerMinute) {
+            this.commandsPerMinute = commandsPerMinute;
+            return this;
+        }
+
+        public long commandBudget() {
+            return this.commandBudget;
+        }
+
+        @Nonnull
+        public Builder commandBudget(long commandBudget) {
+            this.commandBudget = commandBudget;
+            return this;
+        }
+
+        public int commandPermissionLevel() {
+            return this.commandPermissionLevel;
         }
 
         @Nonnull
-        public Builder sendMessages(boolean sendMessages) {
-            this.sendMessages = sendMessages;
+        public Builder commandPermissionLevel(int commandPermissionLevel) {
+            this.commandPermissionLevel = commandPermissionLevel;
             return this;
         }
 
@@ -393,20 +1548,345 @@ public class ChatBridge {
         }
     }
 
+    /**
+     * Acknowledges delivered events within the journal and keeps failed events around until the
+     * connection to Discord has been re-established.
+     */
+    private class DeliveryListener implements SendScheduler.Listener {
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void delivered(@Nonnull OutboundEvent event) {
+            if (journal != null) {
+                journal.acknowledge(event);
+            }
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void failed(@Nonnull OutboundEvent event) {
+            failedEvents.offer(event);
+        }
+    }
+
+    /**
+     * Provides a sink which renders events on the sender thread and passes them to the per-channel
+     * scheduler (or holds them back until the connection to Discord has been established).
+     */
+    private class OutboundSink implements OutboundDispatcher.Sink {
+        private final Deque<OutboundEvent> recovered;
+        private final Deque<OutboundEvent> startupBuffer = new ArrayDeque<>();
+        private final OutageBuffer outageBuffer = new OutageBuffer(outageBufferSize, spillDirectory, ChatBridge.this::discard);
+        private final long loginDeadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(loginTimeout);
+        private boolean loginExpired;
+        private long discarded;
+        private long outageStart;
+
+        /**
+         * Constructs a new sink.
+         *
+         * @param recovered the events which have been recovered from the journal.
+         */
+        OutboundSink(@Nonnull List<OutboundEvent> recovered) {
+            this.recovered = new ArrayDeque<>(recovered);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void accept(@Nonnull OutboundEvent event, long now) {
+            SendScheduler scheduler = ChatBridge.this.scheduler;
+
+            if (scheduler == null) {
+                this.buffer(event);
+                return;
+            }
+
+            long outage = outageSince;
+
+            if (outage != 0) {
+                if (this.outageBuffer.isEmpty()) {
+                    this.outageStart = outage;
+                }
+
+                this.outageBuffer.add(event);
+                return;
+            }
+
+            this.replay(scheduler, now);
+            this.submit(scheduler, event, now);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public long advance(long now) {
+            SendScheduler scheduler = ChatBridge.this.scheduler;
+
+            if (scheduler == null) {
+                if (!this.loginExpired && now - this.loginDeadline >= 0) {
+                    this.loginExpired = true;
+                    this.startupBuffer.forEach(this::discard);
+                    this.startupBuffer.clear();
+
+                    logger.error("Discord did not become ready within " + loginTimeout + "ms: Discarding events until the connection has been established");
+                }
+
+                // the dispatcher polls periodically which is sufficient to notice the connection
+                return (this.loginExpired ? Long.MAX_VALUE : this.loginDeadline);
+            }
+
+            if (outageSince == 0) {
+                this.replay(scheduler, now);
+            }
+
+            return scheduler.advance(now);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void flush() {
+            SendScheduler scheduler = ChatBridge.this.scheduler;
+
+            if (scheduler != null) {
+                this.replay(scheduler, System.nanoTime());
+                scheduler.flush();
+            }
+
+            // the backlog of an ongoing outage remains within the journal (if enabled) and is thus
+            // replayed upon the next start
+            if (!this.outageBuffer.isEmpty()) {
+                logger.warn("Shutting down during a Discord outage: Discarding " + this.outageBuffer.getCount() + " held back events");
+                this.outageBuffer.drain((e) -> {
+                });
+            }
+        }
+
+        /**
+         * Holds an event until the connection has been established.
+         *
+         * @param event an event.
+         */
+        private void buffer(@Nonnull OutboundEvent event) {
+            if (this.loginExpired || startupBufferSize == 0) {
+                this.discard(event);
+                return;
+            }
+
+            if (this.startupBuffer.size() >= startupBufferSize) {
+                this.discard(this.startupBuffer.pollFirst());
+            }
+
+            this.startupBuffer.addLast(event);
+        }
+
+        /**
+         * Discards an event which could not be held back any longer.
+         *
+         * The event is not acknowledged and thus remains within the journal (if enabled) so that
+         * it is replayed upon the next start.
+         *
+         * @param event an event.
+         */
+        private void discard(@Nonnull OutboundEvent event) {
+            ++this.discarded;
+            metrics.dropped(event.getType());
+        }
+
+        /**
+         * Passes all events which have been recovered from the journal or held back while
+         * connecting to the scheduler.
+         *
+         * @param scheduler a scheduler.
+         * @param now       the current time (as reported by {@link System#nanoTime()}).
+         */
+        private void replay(@Nonnull SendScheduler scheduler, long now) {
+            if (this.discarded != 0) {
+                logger.warn("Discarded " + this.discarded + " events while connecting to Discord" + (journal != null ? ": They will be replayed from the journal upon the next start" : ""));
+                this.discarded = 0;
+            }
+
+            OutboundEvent event;
+
+            while ((event = this.recovered.pollFirst()) != null) {
+                this.submit(scheduler, event, now);
+            }
+
+            if (retryRequested) {
+                retryRequested = false;
+                this.retry(scheduler, now);
+            }
+
+            while ((event = this.startupBuffer.pollFirst()) != null) {
+                this.submit(scheduler, event, now);
+            }
+
+            if (!this.outageBuffer.isEmpty()) {
+                this.condense(scheduler, now);
+            }
+        }
+
+        /**
+         * Passes all events whose delivery has failed to the channels which have rejected them.
+         *
+         * The events are passed on in the order they have originally been created in and ahead of
+         * any events which have been queued in the meantime.
+         *
+         * @param scheduler a scheduler.
+         * @param now       the current time (as reported by {@link System#nanoTime()}).
+         */
+        private void retry(@Nonnull SendScheduler scheduler, long now) {
+            List<OutboundEvent> events = new ArrayList<>();
+            OutboundEvent event;
+
+            while ((event = failedEvents.poll()) != null) {
+                events.add(event);
+            }
+
+            if (events.isEmpty()) {
+                return;
+            }
+
+            // journal positions grow monotonically (events which have not been journaled share a
+            // position of -1 and are thus ordered by their creation time instead)
+            events.sort(Comparator.comparingLong(OutboundEvent::getPosition).thenComparingLong(OutboundEvent::getTimestamp));
+
+            logger.info("Retrying " + events.size() + " events which could not be delivered to Discord");
+            events.forEach((e) -> scheduler.retry(render(e), e, now));
+        }
+
+        /**
+         * Passes the backlog of a past outage to the scheduler in condensed form.
+         *
+         * Instead of sending every event on its own, a single line summarizes the backlog and is
+         * followed by a transcript of the most recent chat messages which is packed as densely as
+         * Discord permits. All other events are considered delivered as part of the summary.
+         *
+         * @param scheduler a scheduler.
+         * @param now       the current time (as reported by {@link System#nanoTime()}).
+         */
+        private void condense(@Nonnull SendScheduler scheduler, long now) {
+            final int outageTranscriptLines = settings.getOutageTranscriptLines();
+            long chatMessages = this.outageBuffer.getCount(EventType.CHAT);
+            long skipped = Math.max(0, chatMessages - outageTranscriptLines);
+            String summary = this.outageBuffer.summarize(this.outageStart, System.currentTimeMillis());
+
+            if (chatMessages != 0 && outageTranscriptLines != 0) {
+                summary += (skipped == 0 ? " Chat transcript:" : " Last " + outageTranscriptLines + " chat messages:");
+            }
+
+            logger.info("Connection to Discord has been re-established: Condensing " + this.outageBuffer.getCount() + " held back events");
+
+            List<String> transcript = new ArrayList<>();
+            StringBuilder block = new StringBuilder();
+            long[] index = new long[1];
+
+            this.outageBuffer.drain((e) -> {
+                if (e.getType() == EventType.CHAT && index[0]++ >= skipped) {
+                    String line = render(e);
+
+                    if (block.length() != 0 && block.length() + 1 + line.length() > MessageCoalescer.MESSAGE_LIMIT) {
+                        transcript.add(block.toString());
+                        block.setLength(0);
+                    }
+
+                    block.append(block.length() == 0 ? "" : "\n").append(line);
+                }
+
+                if (journal != null) {
+                    journal.acknowledge(e);
+                }
+            });
+
+            if (block.length() != 0) {
+                transcript.add(block.toString());
+            }
+
+            scheduler.submit(summary, new OutboundEvent(EventType.STATUS, null, summary), now);
+            transcript.forEach((l) -> scheduler.submit(l, new OutboundEvent(EventType.CHAT, null, l), now));
+        }
+
+        /**
+         * Renders an event and passes it to the scheduler unless its type is not routed to any
+         * channel (in which case it is considered delivered right away).
+         *
+         * @param scheduler a scheduler.
+         * @param event     an event.
+         * @param now       the current time (as reported by {@link System#nanoTime()}).
+         */
+        private void submit(@Nonnull SendScheduler scheduler, @Nonnull OutboundEvent event, long now) {
+            if (!scheduler.isRouted(event.getType())) {
+                deliveryListener.delivered(event);
+                return;
+            }
+
+            scheduler.submit(render(event), event, now);
+        }
+    }
+
     /**
      * Provides a basic listener implementation which is capable of forwarding messages from Discord
      * to Minecraft.
      */
     private class DiscordListener extends ListenerAdapter {
-        private final AtomicBoolean hooked = new AtomicBoolean(false);
 
         /**
          * {@inheritDoc}
          */
         @Override
-        public void onReady(@Nonnull ReadyEvent event) {
-            if (this.hooked.compareAndSet(false, true)) {
-                MinecraftForge.EVENT_BUS.register(forgeListener);
+        public void onDisconnect(@Nonnull DisconnectEvent event) {
+            if (outageSince == 0) {
+                outageSince = System.currentTimeMillis();
+                logger.warn("Lost connection to Discord: Holding back events until the connection has been re-established");
+            }
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void onReconnect(@Nonnull ReconnectedEvent event) {
+            // role changes may have been missed while disconnected
+            bypassCache.clear();
+            retryRequested = true;
+            outageSince = 0;
+            initialize(event.getJDA());
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void onResume(@Nonnull ResumedEvent event) {
+            retryRequested = true;
+            outageSince = 0;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void onGuildJoin(@Nonnull GuildJoinEvent event) {
+            if (guildId.equals(event.getGuild().getId())) {
+                initialize(event.getJDA());
+            }
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void onGuildAvailable(@Nonnull GuildAvailableEvent event) {
+            if (guildId.equals(event.getGuild().getId())) {
+                initialize(event.getJDA());
             }
         }
 
@@ -415,23 +1895,95 @@ public class ChatBridge {
          */
         @Override
         public void onGuildMessageReceived(@Nonnull GuildMessageReceivedEvent event) {
-            if (event.getAuthor().isBot() && ignoreBots) {
+            final TextChannel commandChannel = ChatBridge.this.commandChannel;
+
+            // messages within the command channel are never bridged into the game
+            if (commandChannel != null && commandChannel.getId().equals(event.getChannel().getId())) {
+                if (!event.getAuthor().isBot() && isCommander(event.getGuild(), event.getAuthor())) {
+                    submitCommands(commandChannel, (event.getAuthorNick() != null ? event.getAuthorNick() : event.getAuthorName()), event.getMessage().getRawContent());
+                }
+
                 return;
             }
 
-            if (event.getAuthor().getId().equals(botId)) {
+            if (!isBridged(event.getGuild().getId(), event.getChannel().getId())) {
                 return;
             }
 
-            MinecraftServer server = FMLCommonHandler.instance().getMinecraftServerInstance();
+            receive(event.getAuthor().getId(), event.getAuthor().isBot(), isPrivileged(event.getGuild(), event.getAuthor()), (event.getAuthorNick() != null ? event.getAuthorNick() : event.getAuthorName()), event.getMessage().getContent());
+        }
 
-            if (server != null) {
-                server.callFromMainThread((Callable<Object>) () -> {
-                    ITextComponent component = new TextComponentString(String.format(minecraftMessagePattern, (event.getAuthorNick() != null ? event.getAuthorNick() : event.getAuthorName()), event.getMessage().getStrippedContent()));
-                    server.getPlayerList().sendChatMsg(component);
-                    return component;
-                });
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void onGuildMemberJoin(@Nonnull GuildMemberJoinEvent event) {
+            if (!guildId.equals(event.getGuild().getId())) {
+                return;
+            }
+
+            mentions.put(event.getUser().getId(), event.getUser().getUsername(), event.getGuild().getNicknameForUser(event.getUser()));
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void onGuildMemberLeave(@Nonnull GuildMemberLeaveEvent event) {
+            if (!guildId.equals(event.getGuild().getId())) {
+                return;
+            }
+
+            mentions.remove(event.getUser().getId());
+            bypassCache.remove(event.getUser().getId());
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void onGuildMemberRoleAdd(@Nonnull GuildMemberRoleAddEvent event) {
+            if (guildId.equals(event.getGuild().getId())) {
+                bypassCache.remove(event.getUser().getId());
+            }
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void onGuildMemberRoleRemove(@Nonnull GuildMemberRoleRemoveEvent event) {
+            if (guildId.equals(event.getGuild().getId())) {
+                bypassCache.remove(event.getUser().getId());
+            }
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void onGuildMemberNickChange(@Nonnull GuildMemberNickChangeEvent event) {
+            if (!guildId.equals(event.getGuild().getId())) {
+                return;
             }
+
+            mentions.put(event.getUser().getId(), event.getUser().getUsername(), event.getNewNick());
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void onUserNameUpdate(@Nonnull UserNameUpdateEvent event) {
+            Guild guild = ChatBridge.this.guild;
+            User user = event.getUser();
+
+            // username changes are global and thus also reported for users outside of our guild
+            if (guild == null || !mentions.contains(user.getId())) {
+                return;
+            }
+
+            mentions.put(user.getId(), user.getUsername(), guild.getNicknameForUser(user));
         }
     }
 
@@ -441,6 +1993,43 @@ public class ChatBridge {
      */
     private class MinecraftForgeListener {
 
+        /**
+         * Delivers all messages which have been received from Discord since the last tick.
+         *
+         * @param event an event.
+         */
+        @SubscribeEvent
+        public void onServerTick(@Nonnull TickEvent.ServerTickEvent event) {
+            if (event.phase != TickEvent.Phase.END) {
+                return;
+            }
+
+            final long now = System.nanoTime();
+            deathAggregator.advance(now);
+            connectionDebouncer.advance(now);
+
+            MinecraftServer server = FMLCommonHandler.instance().getMinecraftServerInstance();
+
+            if (server != null) {
+                PlayerList players = server.getPlayerList();
+                deliverInbound((c) -> deliver(players, c));
+
+                if (remoteConsole != null) {
+                    remoteConsole.execute(server);
+                }
+            }
+        }
+
+        /**
+         * Discards the cached display name of a player whenever a mod refreshes it.
+         *
+         * @param event an event.
+         */
+        @SubscribeEvent(priority = EventPriority.LOWEST)
+        public void onNameFormat(@Nonnull NameFormat event) {
+            displayNames.invalidate(event.getEntityPlayer().getUniqueID());
+        }
+
         /**
          * Handles all achievements that are received on the server and forwards them to Discord.
          *
@@ -448,17 +2037,23 @@ public class ChatBridge {
          */
         @SubscribeEvent(priority = EventPriority.LOWEST)
         public void onAchievement(@Nonnull AchievementEvent event) {
-            if (!sendAchievements) {
+            if (!settings.isSendAchievements()) {
                 return;
             }
 
-            EntityPlayerMP player = (EntityPlayerMP) event.getEntityPlayer();
+            final long start = System.nanoTime();
 
-            if (player.getStatFile().hasAchievementUnlocked(event.getAchievement()) || !player.getStatFile().canUnlockAchievement(event.getAchievement())) {
-                return;
-            }
+            try {
+                EntityPlayerMP player = (EntityPlayerMP) event.getEntityPlayer();
+
+                if (player.getStatFile().hasAchievementUnlocked(event.getAchievement()) || !player.getStatFile().canUnlockAchievement(event.getAchievement())) {
+                    return;
+                }
 
-            sendMessage(new MessageBuilder().appendFormat(discordAchievementPattern, event.getEntityPlayer().getDisplayName().getUnformattedText(), event.getAchievement().getStatName().getUnformattedText()));
+                dispatch(EventType.ACHIEVEMENT, displayNames.get(event.getEntityPlayer()), FormattingTranslator.translate(event.getAchievement().getStatName()));
+            } finally {
+                metrics.handlerTime(EventType.ACHIEVEMENT, System.nanoTime() - start);
+            }
         }
 
         /**
@@ -468,7 +2063,7 @@ public class ChatBridge {
          */
         @SubscribeEvent(priority = EventPriority.LOWEST)
         public void onLivingDeath(@Nonnull LivingDeathEvent event) {
-            if (!sendDeaths) {
+            if (!settings.isSendDeaths()) {
                 return;
             }
 
@@ -476,8 +2071,18 @@ public class ChatBridge {
                 return;
             }
 
-            EntityPlayer player = (EntityPlayer) event.getEntity();
-            sendMessage(new MessageBuilder().appendFormat(discordDeathPattern, player.getDisplayName().getUnformattedText(), player.getCombatTracker().getDeathMessage().getUnformattedText()));
+            final long start = System.nanoTime();
+
+            try {
+                EntityPlayer player = (EntityPlayer) event.getEntity();
+                Entity killer = event.getSource().getEntity();
+                String killerName = (killer instanceof EntityPlayer ? displayNames.get((EntityPlayer) killer) : (killer != null ? FormattingTranslator.translate(killer.getDisplayName()) : null));
+                String cause = event.getSource().getDamageType() + (killerName != null ? ":" + killerName : "");
+
+                deathAggregator.record(cause, displayNames.get(player), FormattingTranslator.translate(player.getCombatTracker().getDeathMessage()), System.nanoTime());
+            } finally {
+                metrics.handlerTime(EventType.DEATH, System.nanoTime() - start);
+            }
         }
 
         /**
@@ -487,11 +2092,17 @@ public class ChatBridge {
          */
         @SubscribeEvent(priority = EventPriority.LOWEST)
         public void onServerChat(@Nonnull ServerChatEvent event) {
-            if (!sendMessages) {
+            if (!settings.isSendMessages()) {
                 return;
             }
 
-            sendMessage(event.getPlayer(), event.getMessage());
+            final long start = System.nanoTime();
+
+            try {
+                sendMessage(event.getPlayer(), event.getMessage());
+            } finally {
+                metrics.handlerTime(EventType.CHAT, System.nanoTime() - start);
+            }
         }
 
         /**
@@ -501,11 +2112,20 @@ public class ChatBridge {
          */
         @SubscribeEvent(priority = EventPriority.LOWEST)
         public void onPlayerLoggedIn(@Nonnull PlayerEvent.PlayerLoggedInEvent event) {
-            if (!sendConnects) {
-                return;
+            final long start = System.nanoTime();
+
+            try {
+                // the display name is resolved upon login and served from the cache afterwards
+                String name = displayNames.get(event.player);
+                BridgeSettings settings = ChatBridge.this.settings;
+
+                // both directions are tracked as long as either is announced so that flaps cancel out
+                if (settings.isSendConnects() || settings.isSendDisconnects()) {
+                    connectionDebouncer.connected(event.player.getUniqueID(), name, start);
+                }
+            } finally {
+                metrics.handlerTime(EventType.CONNECT, System.nanoTime() - start);
             }
-
-            sendMessage(new MessageBuilder().appendFormat(discordJoinPattern, event.player.getDisplayName().getUnformattedText()));
         }
 
         /**
@@ -515,11 +2135,18 @@ public class ChatBridge {
          */
         @SubscribeEvent(priority = EventPriority.LOWEST)
         public void onPlayerLoggedOut(@Nonnull PlayerEvent.PlayerLoggedOutEvent event) {
-            if (!sendDisconnects) {
-                return;
-            }
+            final long start = System.nanoTime();
 
-            sendMessage(new MessageBuilder().appendFormat(discordPartPattern, event.player.getDisplayName().getUnformattedText()));
+            try {
+                BridgeSettings settings = ChatBridge.this.settings;
+
+                if (settings.isSendConnects() || settings.isSendDisconnects()) {
+                    connectionDebouncer.disconnected(event.player.getUniqueID(), displayNames.get(event.player), start);
+                }
+            } finally {
+                displayNames.invalidate(event.player.getUniqueID());
+                metrics.handlerTime(EventType.DISCONNECT, System.nanoTime() - start);
+            }
         }
     }
 }
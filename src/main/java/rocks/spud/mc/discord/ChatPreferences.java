@@ -0,0 +1,303 @@
+/*
+ * Copyright 2016 Johannes Donath <johannesd@torchmind.com>
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rocks.spud.mc.discord;
+
+import net.minecraft.entity.player.EntityPlayerMP;
+import net.minecraft.server.management.PlayerList;
+import net.minecraft.util.text.ITextComponent;
+import net.minecraftforge.fml.common.eventhandler.EventPriority;
+import net.minecraftforge.fml.common.eventhandler.SubscribeEvent;
+import net.minecraftforge.fml.common.gameevent.PlayerEvent;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Provides a per-player record of whether messages from Discord are displayed to a player.
+ *
+ * Every player who has been seen since the server started is assigned a small index which
+ * addresses a set of bit sets: One which marks players who have made an explicit choice, one which
+ * holds their choice and one which marks the players who are currently online and will thus
+ * receive the next line. Players who did not make a choice follow the configured default.
+ *
+ * Explicit choices are written to disk whenever they change. The file is replaced atomically so
+ * that a crash never leaves a partially written file behind and is laid out as follows:
+ * <pre>
+ * int    version
+ * int    amount of players
+ * long[] most and least significant bits of each player's identifier
+ * int    amount of words
+ * long[] a bit set which holds the choice of each player (in the order of their identifiers)
+ * </pre>
+ *
+ * <strong>Note:</strong> Instances of this class are expected to be used by the server thread
+ * only.
+ *
+ * @author <a href="mailto:johannesd@torchmind.com">Johannes Donath</a>
+ */
+final class ChatPreferences {
+    private static final Logger logger = LogManager.getLogger(ChatPreferences.class);
+    private static final int VERSION = 1;
+
+    private final File file;
+    private final Map<UUID, Integer> indices = new HashMap<>();
+    private final List<UUID> players = new ArrayList<>();
+    private final BitSet chosen = new BitSet();
+    private final BitSet enabled = new BitSet();
+    private final BitSet online = new BitSet();
+    private final BitSet recipients = new BitSet();
+    private boolean defaultEnabled = true;
+
+    /**
+     * Constructs a new set of preferences and loads all previously stored choices.
+     *
+     * @param file a file or null if choices shall not persist across restarts.
+     */
+    ChatPreferences(@Nullable File file) {
+        this.file = file;
+
+        if (file == null || !file.isFile()) {
+            return;
+        }
+
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            int version = input.readInt();
+
+            if (version != VERSION) {
+                throw new IOException("Unsupported version: " + version);
+            }
+
+            int count = input.readInt();
+
+            for (int i = 0; i < count; ++i) {
+                this.indexOf(new UUID(input.readLong(), input.readLong()));
+            }
+
+            long[] words = new long[input.readInt()];
+
+            for (int i = 0; i < words.length; ++i) {
+                words[i] = input.readLong();
+            }
+
+            this.chosen.set(0, count);
+            this.enabled.or(BitSet.valueOf(words));
+        } catch (IOException ex) {
+            this.indices.clear();
+            this.players.clear();
+            this.chosen.clear();
+            this.enabled.clear();
+
+            logger.error("Could not load chat preferences from " + file + ": " + ex.getMessage() + ": All players will use the default", ex);
+        }
+    }
+
+    /**
+     * Retrieves the index of a player and assigns a new index if none has been assigned yet.
+     *
+     * @param player a player identifier.
+     * @return an index.
+     */
+    private int indexOf(@Nonnull UUID player) {
+        Integer index = this.indices.get(player);
+
+        if (index == null) {
+            index = this.players.size();
+
+            this.indices.put(player, index);
+            this.players.add(player);
+        }
+
+        return index;
+    }
+
+    /**
+     * Checks whether a player receives messages from Discord.
+     *
+     * @param player a player identifier.
+     * @return true if enabled, false otherwise.
+     */
+    boolean isEnabled(@Nonnull UUID player) {
+        Integer index = this.indices.get(player);
+
+        if (index == null || !this.chosen.get(index)) {
+            return this.defaultEnabled;
+        }
+
+        return this.enabled.get(index);
+    }
+
+    /**
+     * Records a player's choice and writes all choices to disk.
+     *
+     * @param player  a player identifier.
+     * @param enabled true if the player receives messages from Discord, false otherwise.
+     */
+    void setEnabled(@Nonnull UUID player, boolean enabled) {
+        int index = this.indexOf(player);
+
+        this.chosen.set(index);
+        this.enabled.set(index, enabled);
+        this.update(index);
+        this.save();
+    }
+
+    /**
+     * Selects whether players who did not make a choice receive messages from Discord.
+     *
+     * @param defaultEnabled true if enabled by default, false otherwise.
+     */
+    void setDefaultEnabled(boolean defaultEnabled) {
+        if (this.defaultEnabled == defaultEnabled) {
+            return;
+        }
+
+        this.defaultEnabled = defaultEnabled;
+
+        for (int i = this.online.nextSetBit(0); i != -1; i = this.online.nextSetBit(i + 1)) {
+            this.update(i);
+        }
+    }
+
+    /**
+     * Re-evaluates whether a player is among the recipients of the next line.
+     *
+     * @param index a player index.
+     */
+    private void update(int index) {
+        boolean enabled = (this.chosen.get(index) ? this.enabled.get(index) : this.defaultEnabled);
+        this.recipients.set(index, enabled && this.online.get(index));
+    }
+
+    /**
+     * Sends a component to every online player who receives messages from Discord.
+     *
+     * The same component instance is passed to every recipient and thus needs to remain unchanged
+     * once it has been handed to this method.
+     *
+     * @param players   the server's player list.
+     * @param component a component.
+     * @return the amount of recipients.
+     */
+    int send(@Nonnull PlayerList players, @Nonnull ITextComponent component) {
+        int sent = 0;
+
+        for (int i = this.recipients.nextSetBit(0); i != -1; i = this.recipients.nextSetBit(i + 1)) {
+            EntityPlayerMP player = players.getPlayerByUUID(this.players.get(i));
+
+            if (player != null) {
+                player.addChatMessage(component);
+                ++sent;
+            }
+        }
+
+        return sent;
+    }
+
+    /**
+     * Writes all explicit choices to disk.
+     */
+    private void save() {
+        if (this.file == null) {
+            return;
+        }
+
+        File temporary = new File(this.file.getPath() + ".tmp");
+
+        // players who follow the default are omitted and the remaining choices are compacted
+        BitSet enabled = new BitSet();
+        int count = 0;
+
+        try {
+            try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporary)))) {
+                output.writeInt(VERSION);
+                output.writeInt(this.chosen.cardinality());
+
+                for (int i = this.chosen.nextSetBit(0); i != -1; i = this.chosen.nextSetBit(i + 1)) {
+                    UUID player = this.players.get(i);
+
+                    output.writeLong(player.getMostSignificantBits());
+                    output.writeLong(player.getLeastSignificantBits());
+                    enabled.set(count++, this.enabled.get(i));
+                }
+
+                long[] words = enabled.toLongArray();
+                output.writeInt(words.length);
+
+                for (long word : words) {
+                    output.writeLong(word);
+                }
+            }
+
+            try {
+                Files.move(temporary.toPath(), this.file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException ex) {
+                Files.move(temporary.toPath(), this.file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException ex) {
+            logger.error("Could not save chat preferences to " + this.file + ": " + ex.getMessage() + ": Changes will be lost on restart", ex);
+        }
+    }
+
+    /**
+     * Marks a player as online.
+     *
+     * @param event an event.
+     */
+    @SubscribeEvent(priority = EventPriority.HIGHEST)
+    public void onPlayerLoggedIn(@Nonnull PlayerEvent.PlayerLoggedInEvent event) {
+        int index = this.indexOf(event.player.getUniqueID());
+
+        this.online.set(index);
+        this.update(index);
+    }
+
+    /**
+     * Marks a player as offline.
+     *
+     * @param event an event.
+     */
+    @SubscribeEvent(priority = EventPriority.LOWEST)
+    public void onPlayerLoggedOut(@Nonnull PlayerEvent.PlayerLoggedOutEvent event) {
+        Integer index = this.indices.get(event.player.getUniqueID());
+
+        if (index != null) {
+            this.online.clear(index);
+            this.recipients.clear(index);
+        }
+    }
+}
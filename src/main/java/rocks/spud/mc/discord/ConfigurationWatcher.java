@@ -0,0 +1,137 @@
+/*
+ * Copyright 2016 Johannes Donath <johannesd@torchmind.com>
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rocks.spud.mc.discord;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Watches the configuration file for modifications and notifies a listener once the file has not
+ * been touched for a short while (editors tend to write files in several steps).
+ *
+ * @author <a href="mailto:johannesd@torchmind.com">Johannes Donath</a>
+ */
+final class ConfigurationWatcher implements Runnable {
+    private static final Logger logger = LogManager.getLogger(ConfigurationWatcher.class);
+    private static final long QUIET_PERIOD = 1000;
+
+    private final Path directory;
+    private final Path fileName;
+    private final Runnable listener;
+    private final WatchService watchService;
+    private final Thread thread;
+
+    /**
+     * Constructs a new watcher.
+     *
+     * @param file     a file.
+     * @param listener a listener which is invoked on the watcher thread after each modification.
+     * @throws IOException when the file system does not permit watching the file's directory.
+     */
+    ConfigurationWatcher(@Nonnull File file, @Nonnull Runnable listener) throws IOException {
+        Path path = file.getAbsoluteFile().toPath();
+
+        this.directory = path.getParent();
+        this.fileName = path.getFileName();
+        this.listener = listener;
+        this.watchService = FileSystems.getDefault().newWatchService();
+        this.directory.register(this.watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+
+        this.thread = new Thread(this, "Discord Configuration Watcher");
+        this.thread.setDaemon(true);
+    }
+
+    /**
+     * Starts the watcher thread.
+     */
+    void start() {
+        this.thread.start();
+    }
+
+    /**
+     * Stops the watcher thread.
+     */
+    void shutdown() {
+        try {
+            this.watchService.close();
+        } catch (IOException ex) {
+            logger.warn("Could not stop configuration watcher: " + ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void run() {
+        try {
+            while (true) {
+                if (!this.poll(this.watchService.take())) {
+                    continue;
+                }
+
+                // wait for the file to settle before notifying the listener
+                WatchKey key;
+
+                while ((key = this.watchService.poll(QUIET_PERIOD, TimeUnit.MILLISECONDS)) != null) {
+                    this.poll(key);
+                }
+
+                try {
+                    this.listener.run();
+                } catch (RuntimeException ex) {
+                    logger.error("Could not reload configuration: " + ex.getMessage(), ex);
+                }
+            }
+        } catch (ClosedWatchServiceException ignore) {
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Consumes all events of a key.
+     *
+     * @param key a key.
+     * @return true if the watched file has been modified, false otherwise.
+     */
+    private boolean poll(@Nonnull WatchKey key) {
+        boolean modified = false;
+
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (this.fileName.equals(event.context())) {
+                modified = true;
+            }
+        }
+
+        key.reset();
+        return modified;
+    }
+}
@@ -0,0 +1,183 @@
+/*
+ * Copyright 2016 Johannes Donath <johannesd@torchmind.com>
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rocks.spud.mc.discord;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Provides a per-player debounce for connect and disconnect announcements.
+ *
+ * Every change of a player's connection state is held back for a configurable window. Changes
+ * which are reverted within said window (for instance when a player with an unstable connection
+ * reconnects right away) cancel each other out so that only net state changes are announced.
+ *
+ * This class is not thread safe and is expected to be used from the server thread only.
+ *
+ * @author <a href="mailto:johannesd@torchmind.com">Johannes Donath</a>
+ */
+final class ConnectionDebouncer {
+    private final long window;
+    private final BiConsumer<EventType, String> sink;
+    private final TimerWheel<Player> wheel;
+    private final Map<UUID, Player> players = new HashMap<>();
+
+    /**
+     * Constructs a new debouncer.
+     *
+     * @param window a window (in milliseconds) or zero to announce all changes right away.
+     * @param sink   a sink which receives the announced event type and player name.
+     * @param now    the current time (as reported by {@link System#nanoTime()}).
+     */
+    ConnectionDebouncer(long window, @Nonnull BiConsumer<EventType, String> sink, long now) {
+        this.window = TimeUnit.MILLISECONDS.toNanos(window);
+        this.sink = sink;
+
+        // a single server tick is the finest resolution at which the wheel is ever advanced
+        this.wheel = new TimerWheel<>(512, TimeUnit.MILLISECONDS.toNanos(50), now);
+    }
+
+    /**
+     * Records a player which has connected to the server.
+     *
+     * @param id   the player's unique identifier.
+     * @param name the player's display name.
+     * @param now  the current time (as reported by {@link System#nanoTime()}).
+     */
+    void connected(@Nonnull UUID id, @Nonnull String name, long now) {
+        this.change(id, name, true, now);
+    }
+
+    /**
+     * Records a player which has disconnected from the server.
+     *
+     * @param id   the player's unique identifier.
+     * @param name the player's display name.
+     * @param now  the current time (as reported by {@link System#nanoTime()}).
+     */
+    void disconnected(@Nonnull UUID id, @Nonnull String name, long now) {
+        this.change(id, name, false, now);
+    }
+
+    /**
+     * Announces all changes whose window has elapsed.
+     *
+     * @param now the current time (as reported by {@link System#nanoTime()}).
+     */
+    void advance(long now) {
+        this.wheel.advance(now, Player::announce);
+    }
+
+    /**
+     * Announces all pending changes right away.
+     */
+    void flush() {
+        for (Player player : this.players.values().toArray(new Player[0])) {
+            if (player.timer != null) {
+                this.wheel.cancel(player.timer);
+                player.announce();
+            }
+        }
+    }
+
+    /**
+     * Retrieves the amount of changes which are currently being held back.
+     *
+     * @return an amount of changes.
+     */
+    int getPending() {
+        return this.wheel.size();
+    }
+
+    /**
+     * Records a change of a player's connection state.
+     *
+     * @param id     the player's unique identifier.
+     * @param name   the player's display name.
+     * @param online the player's new state.
+     * @param now    the current time (as reported by {@link System#nanoTime()}).
+     */
+    private void change(@Nonnull UUID id, @Nonnull String name, boolean online, long now) {
+        if (this.window == 0) {
+            this.sink.accept((online ? EventType.CONNECT : EventType.DISCONNECT), name);
+            return;
+        }
+
+        Player player = this.players.get(id);
+
+        if (player == null) {
+            player = new Player(id);
+            this.players.put(id, player);
+        }
+
+        player.name = name;
+
+        if (player.timer != null) {
+            this.wheel.cancel(player.timer);
+            player.timer = null;
+        }
+
+        if (player.online == online) {
+            // the change reverts a pending change which has not been announced yet
+            this.forget(player);
+            return;
+        }
+
+        player.timer = this.wheel.schedule(player, now + this.window);
+    }
+
+    /**
+     * Removes players who are known to be offline (and have no pending changes) from the map.
+     *
+     * @param player a player.
+     */
+    private void forget(@Nonnull Player player) {
+        if (!player.online && player.timer == null) {
+            this.players.remove(player.id);
+        }
+    }
+
+    /**
+     * Represents the announced state of a single player.
+     */
+    private final class Player {
+        private final UUID id;
+        private String name;
+        private boolean online;
+        private TimerWheel.Timer<Player> timer;
+
+        Player(@Nonnull UUID id) {
+            this.id = id;
+        }
+
+        /**
+         * Announces the pending change of this player.
+         */
+        void announce() {
+            this.online = !this.online;
+            this.timer = null;
+
+            sink.accept((this.online ? EventType.CONNECT : EventType.DISCONNECT), this.name);
+            forget(this);
+        }
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2016 Johannes Donath <johannesd@torchmind.com>
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rocks.spud.mc.discord;
+
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.core.LogEvent;
+import org.apache.logging.log4j.core.Logger;
+import org.apache.logging.log4j.core.appender.AbstractAppender;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Provides a log4j appender which copies console lines into a {@link ConsoleBuffer}.
+ *
+ * Lines are rendered on the logging thread and handed over without ever blocking it. Lines which
+ * are logged by this modification or JDA are ignored since a failure to deliver console output
+ * would otherwise produce further console output. JDA writes to the standard streams which Forge
+ * redirects into the STDOUT and STDERR loggers (prefixed with the calling class).
+ *
+ * @author <a href="mailto:johannesd@torchmind.com">Johannes Donath</a>
+ */
+final class ConsoleAppender extends AbstractAppender {
+    private static final String PACKAGE = ConsoleAppender.class.getPackage().getName();
+    private static final String JDA_PACKAGE = "net.dv8tion.jda";
+    private static final String JDA_CALLER = "[" + JDA_PACKAGE;
+
+    private final ConsoleBuffer buffer;
+    private final Level level;
+
+    /**
+     * Constructs a new appender.
+     *
+     * @param name   a unique appender name.
+     * @param buffer a buffer.
+     * @param level  the least severe level which is passed on.
+     */
+    ConsoleAppender(@Nonnull String name, @Nonnull ConsoleBuffer buffer, @Nonnull Level level) {
+        super(name, null, null, true);
+        this.buffer = buffer;
+        this.level = level;
+    }
+
+    /**
+     * Attaches this appender to the root logger.
+     */
+    void register() {
+        this.start();
+        ((Logger) LogManager.getRootLogger()).addAppender(this);
+    }
+
+    /**
+     * Detaches this appender from the root logger.
+     */
+    void unregister() {
+        ((Logger) LogManager.getRootLogger()).removeAppender(this);
+        this.stop();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void append(@Nonnull LogEvent event) {
+        if (!event.getLevel().isAtLeastAsSpecificAs(this.level)) {
+            return;
+        }
+
+        String loggerName = event.getLoggerName();
+
+        if (loggerName != null && (loggerName.startsWith(PACKAGE) || loggerName.startsWith(JDA_PACKAGE))) {
+            return;
+        }
+
+        String message = event.getMessage().getFormattedMessage();
+
+        if (("STDOUT".equals(loggerName) || "STDERR".equals(loggerName)) && message.startsWith(JDA_CALLER)) {
+            return;
+        }
+
+        String line = "[" + event.getThreadName() + "/" + event.getLevel() + "]: " + message;
+        Throwable thrown = event.getThrown();
+
+        if (thrown != null) {
+            line += "\n" + thrown;
+        }
+
+        this.buffer.offer(line);
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2016 Johannes Donath <johannesd@torchmind.com>
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rocks.spud.mc.discord;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Provides a bounded, lock-free ring buffer which hands console lines from any number of logging
+ * threads to a single consumer.
+ *
+ * Every slot carries a sequence number which tells producers whether the slot has been consumed
+ * already and tells the consumer whether the slot has been published yet. Producers thus merely
+ * claim a position through a single compare-and-set and never wait for each other or for the
+ * consumer. Lines which arrive while the buffer is full are counted and discarded instead.
+ *
+ * <strong>Note:</strong> {@link #poll()} and {@link #takeSkipped()} are expected to be invoked
+ * by a single consumer thread only.
+ *
+ * @author <a href="mailto:johannesd@torchmind.com">Johannes Donath</a>
+ */
+final class ConsoleBuffer {
+    private final AtomicReferenceArray<String> lines;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+    private long head;
+
+    /**
+     * Constructs a new empty buffer.
+     *
+     * @param capacity the minimum amount of lines (rounded up to the next power of two).
+     */
+    ConsoleBuffer(int capacity) {
+        if (capacity < 1 || capacity > (1 << 30)) {
+            throw new IllegalArgumentException("Buffer capacity out of range: " + capacity);
+        }
+
+        int size = Integer.highestOneBit(capacity);
+
+        if (size != capacity) {
+            size <<= 1;
+        }
+
+        this.lines = new AtomicReferenceArray<>(size);
+        this.sequences = new AtomicLongArray(size);
+        this.mask = size - 1;
+
+        for (int i = 0; i < size; ++i) {
+            this.sequences.set(i, i);
+        }
+    }
+
+    /**
+     * Appends a line to the buffer unless it is full.
+     *
+     * @param line a line.
+     * @return true if appended, false if the line has been discarded.
+     */
+    boolean offer(@Nonnull String line) {
+        while (true) {
+            final long position = this.tail.get();
+            final int index = (int) position & this.mask;
+            final long difference = this.sequences.get(index) - position;
+
+            if (difference < 0) {
+                this.skipped.incrementAndGet();
+                return false;
+            }
+
+            // another producer has claimed the slot in the meantime
+            if (difference > 0 || !this.tail.compareAndSet(position, position + 1)) {
+                continue;
+            }
+
+            this.lines.set(index, line);
+            this.sequences.lazySet(index, position + 1);
+            return true;
+        }
+    }
+
+    /**
+     * Retrieves and removes the oldest line.
+     *
+     * @return a line or null if the buffer is empty (or the next line has not been published
+     * yet).
+     */
+    @Nullable
+    String poll() {
+        final int index = (int) this.head & this.mask;
+
+        if (this.sequences.get(index) != this.head + 1) {
+            return null;
+        }
+
+        final String line = this.lines.get(index);
+        this.lines.lazySet(index, null);
+        this.sequences.lazySet(index, this.head + this.mask + 1);
+        ++this.head;
+
+        return line;
+    }
+
+    /**
+     * Retrieves and resets the amount of lines which have been discarded since the last
+     * invocation.
+     *
+     * @return an amount of lines.
+     */
+    long takeSkipped() {
+        return this.skipped.getAndSet(0);
+    }
+
+    /**
+     * Retrieves the maximum amount of lines within the buffer.
+     *
+     * @return an amount of lines.
+     */
+    int getCapacity() {
+        return this.mask + 1;
+    }
+}
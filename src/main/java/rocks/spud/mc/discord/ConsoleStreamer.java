@@ -0,0 +1,230 @@
+/*
+ * Copyright 2016 Johannes Donath <johannesd@torchmind.com>
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rocks.spud.mc.discord;
+
+import net.dv8tion.jda.MessageBuilder;
+import net.dv8tion.jda.entities.TextChannel;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Provides a background thread which packs buffered console lines into code blocks and passes
+ * them on to a Discord channel.
+ *
+ * Every message holds as many lines as fit within Discord's message limit. The amount of lines
+ * which are taken from the buffer is bounded by a per-minute budget while the amount of messages
+ * is bounded by the channel's rate limit. Lines which do not fit within either remain in the
+ * buffer until it overflows at which point the next message announces the amount of lines which
+ * have been skipped.
+ *
+ * @author <a href="mailto:johannesd@torchmind.com">Johannes Donath</a>
+ */
+final class ConsoleStreamer implements Runnable {
+    private static final Logger logger = LogManager.getLogger(ConsoleStreamer.class);
+    private static final long FLUSH_INTERVAL = TimeUnit.SECONDS.toMillis(1);
+    private static final String FENCE = "```";
+
+    /**
+     * Defines the maximum length of a single line (leaving room for the fences as well as the skip
+     * marker).
+     */
+    private static final int LINE_LIMIT = MessageCoalescer.MESSAGE_LIMIT - 64;
+
+    private final ConsoleBuffer buffer;
+    private final TokenBucket lineBudget;
+    private final TokenBucket messageBucket;
+    private final long period;
+    private final Thread thread;
+    private final StringBuilder message = new StringBuilder(MessageCoalescer.MESSAGE_LIMIT);
+    private String carry;
+    private volatile TextChannel channel;
+    private volatile boolean running = true;
+
+    /**
+     * Constructs a new streamer.
+     *
+     * @param buffer         a buffer.
+     * @param linesPerMinute the maximum amount of lines which are sent per minute.
+     * @param burst          the maximum amount of messages which are sent in rapid succession.
+     * @param period         the amount of time (in milliseconds) it takes to regain a full burst.
+     */
+    ConsoleStreamer(@Nonnull ConsoleBuffer buffer, int linesPerMinute, int burst, long period) {
+        final long now = System.nanoTime();
+
+        this.buffer = buffer;
+        this.lineBudget = new TokenBucket(linesPerMinute, TimeUnit.MINUTES.toMillis(1), now);
+        this.messageBucket = new TokenBucket(burst, period, now);
+        this.period = TimeUnit.MILLISECONDS.toNanos(period);
+
+        this.thread = new Thread(this, "Discord Console");
+        this.thread.setDaemon(true);
+    }
+
+    /**
+     * Selects the channel which receives the console output. Lines are retained within the buffer
+     * until a channel has been selected.
+     *
+     * @param channel a channel or null.
+     */
+    void setChannel(@Nullable TextChannel channel) {
+        this.channel = channel;
+    }
+
+    /**
+     * Starts the streaming thread.
+     */
+    void start() {
+        this.thread.start();
+    }
+
+    /**
+     * Stops the streaming thread after a final attempt at passing the buffered lines on.
+     *
+     * @param timeout the maximum amount of time to wait for the thread to terminate.
+     * @param unit    a time unit.
+     * @throws InterruptedException when the calling thread is interrupted while waiting.
+     */
+    void shutdown(long timeout, @Nonnull TimeUnit unit) throws InterruptedException {
+        this.running = false;
+        this.thread.interrupt();
+        this.thread.join(unit.toMillis(timeout));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void run() {
+        while (this.running) {
+            try {
+                Thread.sleep(FLUSH_INTERVAL);
+            } catch (InterruptedException ex) {
+                // the remaining lines are flushed one last time before the thread terminates
+            }
+
+            try {
+                this.flush(System.nanoTime());
+            } catch (RuntimeException ex) {
+                logger.error("Could not stream console output: " + ex.getMessage(), ex);
+            }
+        }
+    }
+
+    /**
+     * Sends as many messages as permitted by the channel's rate limit and the line budget.
+     *
+     * @param now the current time (as reported by {@link System#nanoTime()}).
+     */
+    private void flush(long now) {
+        final TextChannel channel = this.channel;
+
+        if (channel == null) {
+            return;
+        }
+
+        while (this.messageBucket.getTokens(now) != 0) {
+            String content = this.pack(now);
+
+            if (content == null) {
+                return;
+            }
+
+            this.messageBucket.tryAcquire(now);
+            channel.sendMessageAsync(new MessageBuilder().appendString(content).build(), (m) -> {
+                // JDA reports rejected messages by passing null to the callback
+                if (m == null) {
+                    this.messageBucket.penalize(System.nanoTime() + this.period);
+                    logger.warn("Discord rejected console output to #" + channel.getName());
+                }
+            });
+        }
+    }
+
+    /**
+     * Packs the next batch of lines into a single code block.
+     *
+     * @param now the current time (as reported by {@link System#nanoTime()}).
+     * @return a message or null if there is nothing to send.
+     */
+    @Nullable
+    private String pack(long now) {
+        final long skipped = this.buffer.takeSkipped();
+        int lines = 0;
+
+        this.message.setLength(0);
+        this.message.append(FENCE).append('\n');
+
+        if (skipped != 0) {
+            this.message.append("... ").append(skipped).append(skipped == 1 ? " line" : " lines").append(" skipped ...\n");
+        }
+
+        while (true) {
+            String line = this.carry;
+
+            if (line == null) {
+                if (this.lineBudget.getTokens(now) == 0 || (line = this.buffer.poll()) == null) {
+                    break;
+                }
+
+                this.lineBudget.tryAcquire(now);
+                line = sanitize(line);
+            }
+
+            // lines which do not fit are carried over to the next message
+            if (this.message.length() + line.length() + 1 + FENCE.length() > MessageCoalescer.MESSAGE_LIMIT) {
+                this.carry = line;
+                break;
+            }
+
+            this.message.append(line).append('\n');
+            this.carry = null;
+            ++lines;
+        }
+
+        if (lines == 0 && skipped == 0) {
+            return null;
+        }
+
+        return this.message.append(FENCE).toString();
+    }
+
+    /**
+     * Prevents a line from terminating the surrounding code block and truncates it to the maximum
+     * line length.
+     *
+     * @param line a line.
+     * @return a sanitized line.
+     */
+    @Nonnull
+    static String sanitize(@Nonnull String line) {
+        if (line.contains(FENCE)) {
+            line = line.replace(FENCE, "`\u200b`\u200b`");
+        }
+
+        if (line.length() > LINE_LIMIT) {
+            line = line.substring(0, LINE_LIMIT - 1) + "\u2026";
+        }
+
+        return line;
+    }
+}
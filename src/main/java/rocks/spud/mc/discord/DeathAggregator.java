@@ -0,0 +1,214 @@
+/*
+ * Copyright 2016 Johannes Donath <johannesd@torchmind.com>
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rocks.spud.mc.discord;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Provides an aggregation stage which condenses mass deaths (such as those caused by a wither or a
+ * trap) into a single summary.
+ *
+ * The first death of a certain cause is passed on right away and opens a window during which
+ * further deaths of the same cause are collected. Once the window closes, the collected deaths are
+ * reported as a single line which lists a bounded amount of names. Isolated deaths thus do not
+ * suffer any additional latency while the amount of memory in use is fixed regardless of the
+ * amount of deaths.
+ *
+ * This class is not thread safe and is expected to be used from the server thread only.
+ *
+ * @author <a href="mailto:johannesd@torchmind.com">Johannes Donath</a>
+ */
+final class DeathAggregator {
+    private final long window;
+    private final BiConsumer<String, String> sink;
+    private final Group[] groups;
+
+    /**
+     * Constructs a new aggregator.
+     *
+     * @param window        an aggregation window (in milliseconds) or zero to disable aggregation.
+     * @param maximumGroups the maximum amount of causes which are aggregated at the same time.
+     * @param maximumNames  the maximum amount of names to list per summary.
+     * @param sink          a sink which receives a subject and a death message.
+     */
+    DeathAggregator(long window, int maximumGroups, int maximumNames, @Nonnull BiConsumer<String, String> sink) {
+        this.window = TimeUnit.MILLISECONDS.toNanos(window);
+        this.sink = sink;
+        this.groups = new Group[maximumGroups];
+
+        for (int i = 0; i < maximumGroups; ++i) {
+            this.groups[i] = new Group(maximumNames);
+        }
+    }
+
+    /**
+     * Records a death.
+     *
+     * @param cause   a cause which identifies deaths that belong together (such as the damage
+     *                type and the killer's name).
+     * @param victim  the victim's display name.
+     * @param message a death message.
+     * @param now     the current time (as reported by {@link System#nanoTime()}).
+     */
+    void record(@Nonnull String cause, @Nonnull String victim, @Nonnull String message, long now) {
+        if (this.window == 0) {
+            this.sink.accept(victim, message);
+            return;
+        }
+
+        Group free = null;
+
+        for (Group group : this.groups) {
+            if (!group.isOpen()) {
+                if (free == null) {
+                    free = group;
+                }
+
+                continue;
+            }
+
+            if (group.cause.equals(cause)) {
+                group.add(victim, message);
+                return;
+            }
+        }
+
+        // isolated deaths are passed on right away and open a window for any followers
+        this.sink.accept(victim, message);
+
+        if (free != null) {
+            free.open(cause, now + this.window);
+        }
+    }
+
+    /**
+     * Closes all windows which have elapsed.
+     *
+     * @param now the current time (as reported by {@link System#nanoTime()}).
+     */
+    void advance(long now) {
+        for (Group group : this.groups) {
+            if (group.isOpen() && now - group.deadline >= 0) {
+                group.close(this.sink);
+            }
+        }
+    }
+
+    /**
+     * Closes all windows regardless of their deadline.
+     */
+    void flush() {
+        for (Group group : this.groups) {
+            if (group.isOpen()) {
+                group.close(this.sink);
+            }
+        }
+    }
+
+    /**
+     * Builds a summary for a set of deaths which share a common cause.
+     *
+     * The summary is derived from the (English) death message of one of the victims by replacing
+     * its name (e.g. "Notch was slain by Wither" becomes "3 more players were slain by Wither").
+     *
+     * @param victim  a victim's display name.
+     * @param message the victim's death message.
+     * @param count   the total amount of deaths.
+     * @param names   a list of names.
+     * @param listed  the amount of names within the list.
+     * @return a summary.
+     */
+    @Nonnull
+    static String summarize(@Nonnull String victim, @Nonnull String message, int count, @Nonnull String[] names, int listed) {
+        String predicate = (message.startsWith(victim) ? message.substring(victim.length()) : " died");
+
+        if (predicate.startsWith(" was ")) {
+            predicate = " were" + predicate.substring(4);
+        }
+
+        StringBuilder builder = new StringBuilder(64)
+                .append(count).append(" more players").append(predicate)
+                .append(" (");
+
+        for (int i = 0; i < listed; ++i) {
+            if (i != 0) {
+                builder.append(", ");
+            }
+
+            builder.append(names[i]);
+        }
+
+        if (count > listed) {
+            builder.append(" and ").append(count - listed).append(" others");
+        }
+
+        return builder.append(')').toString();
+    }
+
+    /**
+     * Represents the deaths which have been collected for a single cause.
+     */
+    private static final class Group {
+        private final String[] names;
+        private String cause;
+        private long deadline;
+        private int count;
+        private String message;
+
+        Group(int maximumNames) {
+            this.names = new String[maximumNames];
+        }
+
+        boolean isOpen() {
+            return this.cause != null;
+        }
+
+        void open(@Nonnull String cause, long deadline) {
+            this.cause = cause;
+            this.deadline = deadline;
+        }
+
+        void add(@Nonnull String victim, @Nonnull String message) {
+            if (this.count == 0) {
+                this.message = message;
+            }
+
+            if (this.count < this.names.length) {
+                this.names[this.count] = victim;
+            }
+
+            ++this.count;
+        }
+
+        void close(@Nonnull BiConsumer<String, String> sink) {
+            if (this.count == 1) {
+                sink.accept(this.names[0], this.message);
+            } else if (this.count > 1) {
+                sink.accept(this.count + " more players", summarize(this.names[0], this.message, this.count, this.names, Math.min(this.count, this.names.length)));
+            }
+
+            Arrays.fill(this.names, null);
+            this.cause = null;
+            this.message = null;
+            this.count = 0;
+        }
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2016 Johannes Donath <johannesd@torchmind.com>
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rocks.spud.mc.discord;
+
+import net.minecraft.command.CommandBase;
+import net.minecraft.command.CommandException;
+import net.minecraft.command.ICommandSender;
+import net.minecraft.command.WrongUsageException;
+import net.minecraft.entity.player.EntityPlayerMP;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.text.TextComponentString;
+
+import java.util.List;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Provides the {@code /discordchat} command which permits players to choose whether messages from
+ * Discord are displayed to them.
+ *
+ * @author <a href="mailto:johannesd@torchmind.com">Johannes Donath</a>
+ */
+class DiscordChatCommand extends CommandBase {
+    private final ChatPreferences preferences;
+
+    /**
+     * Constructs a new command.
+     *
+     * @param preferences the preferences to modify.
+     */
+    DiscordChatCommand(@Nonnull ChatPreferences preferences) {
+        this.preferences = preferences;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Nonnull
+    @Override
+    public String getCommandName() {
+        return "discordchat";
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Nonnull
+    @Override
+    public String getCommandUsage(@Nonnull ICommandSender sender) {
+        return "/discordchat [on|off]";
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getRequiredPermissionLevel() {
+        return 0;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void execute(@Nonnull MinecraftServer server, @Nonnull ICommandSender sender, @Nonnull String[] args) throws CommandException {
+        EntityPlayerMP player = getCommandSenderAsPlayer(sender);
+        boolean enabled;
+
+        if (args.length == 0) {
+            enabled = !this.preferences.isEnabled(player.getUniqueID());
+        } else if (args.length == 1 && "on".equals(args[0])) {
+            enabled = true;
+        } else if (args.length == 1 && "off".equals(args[0])) {
+            enabled = false;
+        } else {
+            throw new WrongUsageException(this.getCommandUsage(sender));
+        }
+
+        this.preferences.setEnabled(player.getUniqueID(), enabled);
+        sender.addChatMessage(new TextComponentString("Messages from Discord are now " + (enabled ? "shown" : "hidden") + "."));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Nonnull
+    @Override
+    public List<String> getTabCompletionOptions(@Nonnull MinecraftServer server, @Nonnull ICommandSender sender, @Nonnull String[] args, @Nullable BlockPos pos) {
+        if (args.length == 1) {
+            return getListOfStringsMatchingLastWord(args, "on", "off");
+        }
+
+        return super.getTabCompletionOptions(server, sender, args, pos);
+    }
+}
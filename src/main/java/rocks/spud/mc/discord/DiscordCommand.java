@@ -0,0 +1,150 @@
+/*
+ * Copyright 2016 Johannes Donath <johannesd@torchmind.com>
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rocks.spud.mc.discord;
+
+import net.minecraft.command.CommandBase;
+import net.minecraft.command.CommandException;
+import net.minecraft.command.ICommandSender;
+import net.minecraft.command.WrongUsageException;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.text.TextComponentString;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Supplier;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Provides the {@code /discord} server command which exposes the state of the chat bridge to
+ * operators and permits reloading its configuration.
+ *
+ * @author <a href="mailto:johannesd@torchmind.com">Johannes Donath</a>
+ */
+class DiscordCommand extends CommandBase {
+    private final Supplier<? extends Collection<ChatBridge>> bridges;
+    private final Supplier<String> reload;
+
+    /**
+     * Constructs a new command.
+     *
+     * @param bridges a supplier which retrieves the current set of bridges.
+     * @param reload  a function which reloads the configuration and returns a summary of the
+     *                applied changes.
+     */
+    DiscordCommand(@Nonnull Supplier<? extends Collection<ChatBridge>> bridges, @Nonnull Supplier<String> reload) {
+        this.bridges = bridges;
+        this.reload = reload;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Nonnull
+    @Override
+    public String getCommandName() {
+        return "discord";
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Nonnull
+    @Override
+    public String getCommandUsage(@Nonnull ICommandSender sender) {
+        return "/discord <stats|reload>";
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getRequiredPermissionLevel() {
+        return 3;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void execute(@Nonnull MinecraftServer server, @Nonnull ICommandSender sender, @Nonnull String[] args) throws CommandException {
+        if (args.length != 1) {
+            throw new WrongUsageException(this.getCommandUsage(sender));
+        }
+
+        if ("reload".equals(args[0])) {
+            sender.addChatMessage(new TextComponentString(this.reload.get()));
+            return;
+        }
+
+        if (!"stats".equals(args[0])) {
+            throw new WrongUsageException(this.getCommandUsage(sender));
+        }
+
+        Collection<ChatBridge> bridges = this.bridges.get();
+
+        if (bridges.isEmpty()) {
+            sender.addChatMessage(new TextComponentString("No Discord bridges have been configured."));
+            return;
+        }
+
+        for (ChatBridge bridge : bridges) {
+            this.printStatistics(sender, bridge);
+        }
+    }
+
+    /**
+     * Prints the statistics of a single bridge.
+     *
+     * @param sender a sender.
+     * @param bridge a bridge.
+     */
+    private void printStatistics(@Nonnull ICommandSender sender, @Nonnull ChatBridge bridge) {
+        BridgeMetricsMXBean metrics = bridge.getMetrics();
+        sender.addChatMessage(new TextComponentString("Discord bridge " + bridge.getName() + " (" + (bridge.isReady() ? "connected" : "not connected") + "):"));
+
+        for (EventStatistics statistics : metrics.getEvents()) {
+            if (statistics.getQueued() == 0 && statistics.getDropped() == 0) {
+                continue;
+            }
+
+            sender.addChatMessage(new TextComponentString(" " + statistics.getType() + ": " + statistics.getQueued() + " queued, " + statistics.getSent() + " sent, " + statistics.getDropped() + " dropped, " + statistics.getFailed() + " failed (handler p99: " + HistogramSnapshot.format(statistics.getHandlerTime().getPercentile99()) + ", latency p50: " + HistogramSnapshot.format(statistics.getLatency().getMedian()) + ", p99: " + HistogramSnapshot.format(statistics.getLatency().getPercentile99()) + ")"));
+        }
+
+        sender.addChatMessage(new TextComponentString(" Inbound: " + metrics.getInboundReceived() + " received, " + metrics.getInboundDelivered() + " delivered, " + metrics.getInboundDropped() + " dropped, " + metrics.getInboundLimited() + " rate limited"));
+        sender.addChatMessage(new TextComponentString(" Queues: " + metrics.getOutboundQueueDepth() + " outbound, " + metrics.getInboundQueueDepth() + " inbound, " + metrics.getPendingMessages() + " pending"));
+
+        for (ChannelState state : bridge.getChannelStates()) {
+            sender.addChatMessage(new TextComponentString(" " + state));
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Nonnull
+    @Override
+    public List<String> getTabCompletionOptions(@Nonnull MinecraftServer server, @Nonnull ICommandSender sender, @Nonnull String[] args, @Nullable BlockPos pos) {
+        if (args.length == 1) {
+            return getListOfStringsMatchingLastWord(args, "stats", "reload");
+        }
+
+        return super.getTabCompletionOptions(server, sender, args, pos);
+    }
+}
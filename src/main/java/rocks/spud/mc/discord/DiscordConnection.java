@@ -0,0 +1,250 @@
+/*
+ * Copyright 2016 Johannes Donath <johannesd@torchmind.com>
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rocks.spud.mc.discord;
+
+import net.dv8tion.jda.JDA;
+import net.dv8tion.jda.JDABuilder;
+import net.dv8tion.jda.events.Event;
+import net.dv8tion.jda.events.ReadyEvent;
+import net.dv8tion.jda.hooks.EventListener;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.Arrays;
+
+import javax.annotation.Nonnull;
+import javax.security.auth.login.LoginException;
+
+/**
+ * Provides a single (optionally sharded) Discord session which is shared between any amount of
+ * chat bridges.
+ *
+ * Every shard dispatches its events to the bridges whose guild it serves. Bridges may be attached
+ * at any time; bridges which are attached after their shard has become ready are initialized
+ * right away.
+ *
+ * @author <a href="mailto:johannesd@torchmind.com">Johannes Donath</a>
+ */
+public final class DiscordConnection {
+    private static final Logger logger = LogManager.getLogger(DiscordConnection.class);
+
+    /**
+     * Discord permits a single identification every five seconds per bot.
+     */
+    private static final long IDENTIFY_INTERVAL = 5500;
+
+    private final String botToken;
+    private final Shard[] shards;
+    private boolean shutdown;
+
+    /**
+     * Constructs a new connection.
+     *
+     * @param botToken a bot token.
+     * @param shards   the total amount of shards to open.
+     */
+    public DiscordConnection(@Nonnull String botToken, int shards) {
+        if (shards < 1) {
+            throw new IllegalArgumentException("Shard count must be positive: " + shards);
+        }
+
+        this.botToken = botToken;
+        this.shards = new Shard[shards];
+
+        for (int i = 0; i < shards; ++i) {
+            this.shards[i] = new Shard(i);
+        }
+    }
+
+    /**
+     * Computes the shard which is responsible for a certain guild.
+     *
+     * @param guildId a guild identifier.
+     * @param shards  the total amount of shards.
+     * @return a shard identifier.
+     */
+    static int shardOf(long guildId, int shards) {
+        return (int) ((guildId >>> 22) % shards);
+    }
+
+    /**
+     * Starts connecting all shards in the background.
+     *
+     * JDA performs a blocking request while validating the token and thus needs to be kept away
+     * from the FML initialization entirely.
+     */
+    public void connect() {
+        final Thread loginThread = new Thread(() -> {
+            for (Shard shard : this.shards) {
+                try {
+                    if (shard.id != 0) {
+                        Thread.sleep(IDENTIFY_INTERVAL);
+                    }
+
+                    JDABuilder builder = new JDABuilder()
+                            .setBotToken(this.botToken)
+                            .setAutoReconnect(true)
+                            .setAudioEnabled(false)
+                            .addListener(shard);
+
+                    if (this.shards.length != 1) {
+                        builder.useSharding(shard.id, this.shards.length);
+                    }
+
+                    // shards need to be identified one after another
+                    JDA jda = builder.buildBlocking();
+
+                    // the connection may have been shut down while the shard was logging in
+                    synchronized (this) {
+                        if (this.shutdown) {
+                            jda.shutdown();
+                            return;
+                        }
+
+                        shard.jda = jda;
+                    }
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    return;
+                } catch (LoginException | RuntimeException ex) {
+                    logger.error("Could not authenticate with Discord: " + ex.getMessage(), ex);
+                    return;
+                }
+            }
+        }, "Discord Login");
+        loginThread.setDaemon(true);
+        loginThread.start();
+    }
+
+    /**
+     * Attaches a bridge to the shard which serves its guild.
+     *
+     * @param bridge a bridge.
+     */
+    void attach(@Nonnull ChatBridge bridge) {
+        this.shards[shardOf(bridge.getGuildSnowflake(), this.shards.length)].attach(bridge);
+    }
+
+    /**
+     * Detaches a bridge from its shard.
+     *
+     * @param bridge a bridge.
+     */
+    void detach(@Nonnull ChatBridge bridge) {
+        this.shards[shardOf(bridge.getGuildSnowflake(), this.shards.length)].detach(bridge);
+    }
+
+    /**
+     * Retrieves the total amount of shards.
+     *
+     * @return an amount of shards.
+     */
+    public int getShardCount() {
+        return this.shards.length;
+    }
+
+    /**
+     * Closes all shards (including those which are still logging in).
+     */
+    public synchronized void shutdown() {
+        this.shutdown = true;
+
+        for (Shard shard : this.shards) {
+            JDA jda = shard.jda;
+
+            if (jda != null) {
+                jda.shutdown();
+            }
+        }
+    }
+
+    /**
+     * Represents a single gateway connection and the bridges it serves.
+     */
+    private static final class Shard implements EventListener {
+        private static final ChatBridge[] NO_BRIDGES = new ChatBridge[0];
+
+        private final int id;
+        private volatile JDA jda;
+        private volatile ChatBridge[] bridges = NO_BRIDGES;
+        private JDA readyJda;
+
+        Shard(int id) {
+            this.id = id;
+        }
+
+        /**
+         * Adds a bridge to this shard and initializes it if the shard is ready already.
+         *
+         * @param bridge a bridge.
+         */
+        void attach(@Nonnull ChatBridge bridge) {
+            final JDA jda;
+
+            synchronized (this) {
+                ChatBridge[] bridges = Arrays.copyOf(this.bridges, this.bridges.length + 1);
+                bridges[bridges.length - 1] = bridge;
+                this.bridges = bridges;
+                jda = this.readyJda;
+            }
+
+            if (jda != null) {
+                bridge.initialize(jda);
+            }
+        }
+
+        /**
+         * Removes a bridge from this shard.
+         *
+         * @param bridge a bridge.
+         */
+        synchronized void detach(@Nonnull ChatBridge bridge) {
+            this.bridges = Arrays.stream(this.bridges)
+                    .filter((b) -> b != bridge)
+                    .toArray(ChatBridge[]::new);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void onEvent(@Nonnull Event event) {
+            if (event instanceof ReadyEvent) {
+                final ChatBridge[] bridges;
+
+                synchronized (this) {
+                    this.readyJda = event.getJDA();
+                    bridges = this.bridges;
+                }
+
+                for (ChatBridge bridge : bridges) {
+                    bridge.initialize(event.getJDA());
+                }
+
+                return;
+            }
+
+            // indexed iteration keeps the dispatch of high volume events free of allocations
+            final ChatBridge[] bridges = this.bridges;
+
+            for (int i = 0; i < bridges.length; ++i) {
+                bridges[i].getDiscordListener().onEvent(event);
+            }
+        }
+    }
+}
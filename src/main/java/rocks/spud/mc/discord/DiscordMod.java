@@ -16,14 +16,30 @@
  */
 package rocks.spud.mc.discord;
 
-import net.dv8tion.jda.MessageBuilder;
+import net.minecraft.server.MinecraftServer;
+import net.minecraftforge.common.MinecraftForge;
 import net.minecraftforge.common.config.Configuration;
 import net.minecraftforge.common.config.Property;
+import net.minecraftforge.fml.common.FMLCommonHandler;
 import net.minecraftforge.fml.common.Mod;
-import net.minecraftforge.fml.common.event.FMLInitializationEvent;
 import net.minecraftforge.fml.common.event.FMLPostInitializationEvent;
 import net.minecraftforge.fml.common.event.FMLPreInitializationEvent;
+import net.minecraftforge.fml.common.event.FMLServerStartingEvent;
+import net.minecraftforge.fml.common.event.FMLServerStoppingEvent;
 
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.regex.Pattern;
 
 import javax.annotation.Nonnull;
@@ -35,20 +51,82 @@ import javax.annotation.Nonnull;
  */
 @Mod(modid = "discord", serverSideOnly = true, acceptableRemoteVersions = "*")
 public class DiscordMod {
-    private ChatBridge bridge;
+    private static final Logger logger = LogManager.getLogger(DiscordMod.class);
+
+    private volatile List<ChatBridge> bridges = Collections.emptyList();
+    private DiscordConnection connection;
+    private String botToken;
     private Configuration configuration;
+    private ConfigurationWatcher watcher;
+    private File journalDirectory;
+    private ChatPreferences preferences;
 
     @Mod.EventHandler
     public void onPreInitialization(@Nonnull FMLPreInitializationEvent event) {
         this.configuration = new Configuration(event.getSuggestedConfigurationFile(), "0.1.0");
+        this.journalDirectory = new File(event.getModConfigurationDirectory().getParentFile(), "discord-journal");
+        this.preferences = new ChatPreferences(new File(event.getModConfigurationDirectory().getParentFile(), "discord-players.dat"));
+        MinecraftForge.EVENT_BUS.register(this.preferences);
+
+        // bridges are created as early as possible since they connect to Discord in the background
+        this.apply();
+
+        {
+            Property property = this.configuration.get("reload", "watch", false);
+            property.setComment("Enables or disables reloading the configuration automatically whenever this file is modified (use /discord reload otherwise).");
+
+            if (property.getBoolean()) {
+                try {
+                    this.watcher = new ConfigurationWatcher(this.configuration.getConfigFile(), this::scheduleReload);
+                    this.watcher.start();
+                } catch (IOException ex) {
+                    logger.error("Could not watch configuration file: " + ex.getMessage(), ex);
+                }
+            }
+        }
     }
 
-    @Mod.EventHandler
-    public void onInitialization(@Nonnull FMLInitializationEvent event) {
+    /**
+     * Reloads the configuration file and applies it to all bridges.
+     *
+     * @return a summary of the applied changes.
+     */
+    @Nonnull
+    private synchronized String reload() {
+        this.configuration.load();
+        return this.apply();
+    }
+
+    /**
+     * Reloads the configuration on the server thread (or right away while the server is not
+     * running yet).
+     */
+    private void scheduleReload() {
+        MinecraftServer server = FMLCommonHandler.instance().getMinecraftServerInstance();
+
+        if (server == null) {
+            logger.info(this.reload());
+            return;
+        }
+
+        server.addScheduledTask(() -> logger.info(this.reload()));
+    }
+
+    /**
+     * Creates or updates all bridges based on the current configuration.
+     *
+     * Bridges whose layout did not change are updated in place while all other bridges are
+     * rebuilt. The connection to Discord is only re-established when the bot's credentials have
+     * changed.
+     *
+     * @return a summary of the applied changes.
+     */
+    @Nonnull
+    private synchronized String apply() {
         final String botToken;
+        final int shards;
         final String guildId;
-
-        ChatBridge.Builder builder = ChatBridge.builder();
+        final long loginTimeout;
 
         // Authentication Settings
         {
@@ -58,6 +136,13 @@ public class DiscordMod {
 
             botToken = property.getString();
         }
+        {
+            Property property = this.configuration.get("authentication", "shards", 1);
+            property.setComment("Specifies the amount of gateway connections to split the bot's guilds across (only required for bots which are part of a very large amount of guilds).");
+            property.setMinValue(1);
+
+            shards = property.getInt();
+        }
         {
             Property property = this.configuration.get("authentication", "guildId", "0000");
             property.setComment("Specifies the Guild (Server) to retrieve messages from and send messages back to (check your server's widget settings to retrieve this information).");
@@ -65,97 +150,436 @@ public class DiscordMod {
 
             guildId = property.getString();
         }
+        {
+            Property property = this.configuration.get("authentication", "loginTimeout", (int) ChatBridge.builder().loginTimeout());
+            property.setComment("Specifies the amount of milliseconds to wait for the Discord connection before events are discarded instead of being held back.");
+            property.setMinValue(0);
+
+            loginTimeout = property.getInt();
+        }
+
+        // Player Settings
+        {
+            Property property = this.configuration.get("players", "showDiscordChat", true);
+            property.setComment("Indicates whether messages from Discord are shown to players who did not choose otherwise using /discordchat.");
+
+            this.preferences.setDefaultEnabled(property.getBoolean());
+        }
+
+        // Additional Bridges
+        final String[] bridgeNames;
+
+        {
+            Property property = this.configuration.get("bridges", "names", new String[0]);
+            property.setComment("Specifies the names of additional bridges (each of which is configured within its own \"bridges.<name>\" category and shares the bot's connection). The name \"default\" is reserved for the bridge configured above.");
+
+            bridgeNames = property.getStringList();
+        }
+
+        if (botToken.isEmpty()) {
+            this.shutdown();
+            return "No bot token has been configured: Discord bridges are disabled";
+        }
+
+        final Map<String, String> guildIds = new LinkedHashMap<>();
+        final Map<String, ChatBridge.Builder> builders = new LinkedHashMap<>();
+
+        if (!guildId.isEmpty()) {
+            ChatBridge.Builder builder = ChatBridge.builder()
+                    .loginTimeout(loginTimeout)
+                    .preferences(this.preferences);
+            this.configureBridge("", "default", builder);
+
+            guildIds.put("default", guildId);
+            builders.put("default", builder);
+        }
+
+        for (String name : bridgeNames) {
+            // names double as journal directories which may be case insensitive
+            if ("default".equalsIgnoreCase(name) || builders.keySet().stream().anyMatch(name::equalsIgnoreCase)) {
+                logger.error("Ignoring bridge \"" + name + "\": The name is reserved or has been used by another bridge already");
+                continue;
+            }
+
+            final String category = "bridges." + name;
+            final String bridgeGuildId;
+
+            {
+                Property property = this.configuration.get(category, "guildId", "0000");
+                property.setComment("Specifies the Guild (Server) this bridge retrieves messages from and sends messages back to.");
+                property.setValidationPattern(Pattern.compile("^\\d+$"));
+
+                bridgeGuildId = property.getString();
+            }
+
+            ChatBridge.Builder builder = ChatBridge.builder()
+                    .name(name)
+                    .loginTimeout(loginTimeout)
+                    .preferences(this.preferences);
+            this.configureBridge(category + ".", name, builder);
+
+            guildIds.put(name, bridgeGuildId);
+            builders.put(name, builder);
+        }
+
+        // the existing session is reused unless the bot's credentials have changed
+        final boolean reconnect = (this.connection == null || !botToken.equals(this.botToken) || shards != this.connection.getShardCount());
+
+        if (reconnect) {
+            this.shutdown();
+
+            this.connection = new DiscordConnection(botToken, shards);
+            this.botToken = botToken;
+        }
+
+        final Map<String, ChatBridge> previous = new HashMap<>();
+        this.bridges.forEach((b) -> previous.put(b.getName(), b));
+
+        final List<ChatBridge> bridges = new ArrayList<>(builders.size());
+        int updated = 0;
+        int rebuilt = 0;
+
+        for (Map.Entry<String, ChatBridge.Builder> entry : builders.entrySet()) {
+            ChatBridge bridge = previous.remove(entry.getKey());
+            String bridgeGuildId = guildIds.get(entry.getKey());
+
+            if (bridge != null && bridge.reconfigure(entry.getValue(), bridgeGuildId)) {
+                bridges.add(bridge);
+                ++updated;
+                continue;
+            }
+
+            // the previous instance finishes its pending work in the background and hands its
+            // journal over so that the reload does not wait for Discord
+            bridges.add(bridge != null ? entry.getValue().replace(bridge, this.connection, bridgeGuildId) : entry.getValue().build(this.connection, bridgeGuildId));
+            ++rebuilt;
+        }
+
+        previous.values().forEach((b) -> b.retire(null));
+        this.bridges = Collections.unmodifiableList(bridges);
+
+        if (reconnect) {
+            this.connection.connect();
+        }
+
+        return "Applied Discord configuration: " + updated + " bridges updated, " + rebuilt + " bridges (re)built, " + previous.size() + " bridges removed" + (reconnect ? " (connecting to Discord)" : "");
+    }
+
+    /**
+     * Shuts down all bridges as well as the connection to Discord.
+     */
+    private synchronized void shutdown() {
+        this.bridges.forEach(ChatBridge::shutdown);
+        this.bridges = Collections.emptyList();
+
+        if (this.connection != null) {
+            this.connection.shutdown();
+            this.connection = null;
+            this.botToken = null;
+        }
+    }
+
+    /**
+     * Reads the settings of a single bridge from the configuration.
+     *
+     * @param prefix  a category prefix (empty for the default bridge).
+     * @param name    a bridge name.
+     * @param builder a builder to configure.
+     */
+    private void configureBridge(@Nonnull String prefix, @Nonnull String name, @Nonnull ChatBridge.Builder builder) {
+        final String bridge = prefix + "bridge";
+        final String messages = prefix + "messages";
+        final String formats = prefix + "formats";
+        final String routes = prefix + "routes";
+        final String console = prefix + "console";
 
         // Bridge Settings
         {
-            Property property = this.configuration.get("bridge", "channels", "");
+            Property property = this.configuration.get(bridge, "channels", "");
             property.setComment("Specifies a list of channels the bot will respond to.");
 
             builder.addChannel(property.getStringList());
         }
         {
-            Property property = this.configuration.get("bridge", "tts", builder.enableTTS());
+            Property property = this.configuration.get(bridge, "tts", builder.enableTTS());
             property.setComment("Enables or disables text-to-speech (TTS) for all messages.");
 
             builder.enableTTS(property.getBoolean());
         }
         {
-            Property property = this.configuration.get("bridge", "ignoreBots", builder.ignoreBots());
+            Property property = this.configuration.get(bridge, "ignoreBots", builder.ignoreBots());
             property.setComment("Indicates whether bot messages shall be ignored.");
 
             builder.ignoreBots(property.getBoolean());
         }
+        {
+            Property property = this.configuration.get(bridge, "queueCapacity", builder.queueCapacity());
+            property.setComment("Specifies the maximum amount of events which may be waiting to be sent to Discord.");
+            property.setMinValue(1);
+
+            builder.queueCapacity(property.getInt());
+        }
+        {
+            Property property = this.configuration.get(bridge, "queueOverflowPolicy", builder.overflowPolicy().name());
+            property.setComment("Specifies how events are handled when the queue is full (BLOCK the server thread, DROP_OLDEST or DROP_NEWEST).");
+            property.setValidValues(Arrays.stream(OverflowPolicy.values()).map(Enum::name).toArray(String[]::new));
+
+            builder.overflowPolicy(OverflowPolicy.valueOf(property.getString()));
+        }
+        {
+            Property property = this.configuration.get(bridge, "coalesceWindow", (int) builder.coalesceWindow());
+            property.setComment("Specifies the amount of milliseconds during which consecutive events are merged into a single Discord message (0 to disable).");
+            property.setMinValue(0);
+
+            builder.coalesceWindow(property.getInt());
+        }
+        {
+            Property property = this.configuration.get(bridge, "rateLimitBurst", builder.rateLimitBurst());
+            property.setComment("Specifies the amount of messages which may be sent to a single channel in a burst.");
+            property.setMinValue(1);
+
+            builder.rateLimitBurst(property.getInt());
+        }
+        {
+            Property property = this.configuration.get(bridge, "rateLimitPeriod", (int) builder.rateLimitPeriod());
+            property.setComment("Specifies the amount of milliseconds it takes for a channel to recover its full burst.");
+            property.setMinValue(1);
+
+            builder.rateLimitPeriod(property.getInt());
+        }
+        {
+            Property property = this.configuration.get(bridge, "maxPendingMessages", builder.maxPendingMessages());
+            property.setComment("Specifies the amount of complete messages which may wait for a rate limited channel before the oldest message is discarded.");
+            property.setMinValue(1);
+
+            builder.maxPendingMessages(property.getInt());
+        }
+        {
+            Property property = this.configuration.get(bridge, "inboundPerTick", builder.inboundPerTick());
+            property.setComment("Specifies the maximum amount of Discord messages which are delivered to players within a single server tick.");
+            property.setMinValue(1);
+
+            builder.inboundPerTick(property.getInt());
+        }
+        {
+            Property property = this.configuration.get(bridge, "inboundPerSecond", builder.inboundPerSecond());
+            property.setComment("Specifies the maximum amount of Discord messages which are accepted per second (0 disables the limit). Excess messages are hidden.");
+            property.setMinValue(0);
+
+            builder.inboundPerSecond(property.getInt());
+        }
+        {
+            Property property = this.configuration.get(bridge, "inboundPerAuthor", builder.inboundPerAuthor());
+            property.setComment("Specifies the maximum amount of Discord messages which are accepted per second from a single author (0 disables the limit). Excess messages are hidden.");
+            property.setMinValue(0);
+
+            builder.inboundPerAuthor(property.getInt());
+        }
+        {
+            Property property = this.configuration.get(bridge, "inboundLogRate", builder.inboundLogRate());
+            property.setComment("Specifies the maximum amount of Discord messages which are written to the server log per minute (0 disables logging).");
+            property.setMinValue(0);
+
+            builder.inboundLogRate(property.getInt());
+        }
+        {
+            Property property = this.configuration.get(bridge, "bypassRoles", "");
+            property.setComment("Specifies a list of Discord roles whose members are exempt from the inbound rate limits.");
+
+            builder.addBypassRole(property.getStringList());
+        }
+        {
+            Property property = this.configuration.get(bridge, "startupBufferSize", builder.startupBufferSize());
+            property.setComment("Specifies the maximum amount of events which are held back until the connection to Discord has been established.");
+            property.setMinValue(0);
+
+            builder.startupBufferSize(property.getInt());
+        }
+        {
+            Property property = this.configuration.get(bridge, "journal", true);
+            property.setComment("Enables or disables the on-disk journal which retains undelivered events across outages and restarts.");
+
+            builder.journalDirectory(property.getBoolean() ? new File(this.journalDirectory, name) : null);
+        }
+        {
+            Property property = this.configuration.get(bridge, "outageBufferSize", builder.outageBufferSize());
+            property.setComment("Specifies the amount of events which are held in memory while Discord is unreachable. Older events are spilled to disk.");
+            property.setMinValue(1);
+
+            builder.outageBufferSize(property.getInt());
+        }
+        {
+            Property property = this.configuration.get(bridge, "outageTranscriptLines", builder.outageTranscriptLines());
+            property.setComment("Specifies the maximum amount of chat messages which are repeated once Discord becomes reachable again (all other events are summarized).");
+            property.setMinValue(0);
+
+            builder.outageTranscriptLines(property.getInt());
+        }
+
+        // Console Settings
+        {
+            Property property = this.configuration.get(console, "channel", "");
+            property.setComment("Specifies a channel which mirrors the server console (leave empty to disable). Make sure that only staff members can read this channel.");
+
+            builder.consoleChannel(property.getString());
+        }
+        {
+            Property property = this.configuration.get(console, "level", builder.consoleLevel().name());
+            property.setComment("Specifies the least severe level of console lines which are mirrored.");
+            property.setValidValues(new String[]{"FATAL", "ERROR", "WARN", "INFO", "DEBUG", "TRACE"});
+
+            builder.consoleLevel(Level.toLevel(property.getString(), builder.consoleLevel()));
+        }
+        {
+            Property property = this.configuration.get(console, "linesPerMinute", builder.consoleLinesPerMinute());
+            property.setComment("Specifies the maximum amount of console lines which are mirrored per minute. Excess lines are held back until the buffer overflows.");
+            property.setMinValue(1);
+
+            builder.consoleLinesPerMinute(property.getInt());
+        }
+        {
+            Property property = this.configuration.get(console, "bufferSize", builder.consoleBufferSize());
+            property.setComment("Specifies the amount of console lines which may be waiting to be mirrored. Lines beyond this limit are skipped.");
+            property.setMinValue(1);
+
+            builder.consoleBufferSize(property.getInt());
+        }
+        {
+            Property property = this.configuration.get(console, "commandChannel", "");
+            property.setComment("Specifies a channel which accepts server commands from members of the command roles (leave empty to disable). Messages within this channel are never bridged.");
+
+            builder.commandChannel(property.getString());
+        }
+        {
+            Property property = this.configuration.get(console, "commandRoles", "");
+            property.setComment("Specifies a list of Discord roles whose members are permitted to execute server commands.");
+
+            builder.addCommandRole(property.getStringList());
+        }
+        {
+            Property property = this.configuration.get(console, "commandsPerMinute", builder.commandsPerMinute());
+            property.setComment("Specifies the maximum amount of commands which are accepted per minute. Excess commands are rejected.");
+            property.setMinValue(1);
+
+            builder.commandsPerMinute(property.getInt());
+        }
+        {
+            Property property = this.configuration.get(console, "commandBudget", (int) builder.commandBudget());
+            property.setComment("Specifies the amount of milliseconds which may be spent on executing commands within a single tick (at least one command is executed per tick).");
+            property.setMinValue(0);
+
+            builder.commandBudget(property.getInt());
+        }
+        {
+            Property property = this.configuration.get(console, "commandPermissionLevel", builder.commandPermissionLevel());
+            property.setComment("Specifies the permission level commands are executed with (4 grants access to all commands).");
+            property.setMinValue(0);
+            property.setMaxValue(4);
+
+            builder.commandPermissionLevel(property.getInt());
+        }
 
         // Message Types
         {
-            Property property = this.configuration.get("messages", "achievements", builder.sendAchievements());
+            Property property = this.configuration.get(messages, "achievements", builder.sendAchievements());
             property.setComment("Enables or disables the bridging of achievement messages.");
 
             builder.sendAchievements(property.getBoolean());
         }
         {
-            Property property = this.configuration.get("messages", "connects", builder.sendConnects());
+            Property property = this.configuration.get(messages, "connects", builder.sendConnects());
             property.setComment("Enables or disables the bridging of connect messages.");
 
             builder.sendConnects(property.getBoolean());
         }
         {
-            Property property = this.configuration.get("messages", "disconnects", builder.sendDisconnects());
+            Property property = this.configuration.get(messages, "disconnects", builder.sendDisconnects());
             property.setComment("Enables or disables the bridging of disconnect messages.");
 
-            builder.sendConnects(property.getBoolean());
+            builder.sendDisconnects(property.getBoolean());
         }
         {
-            Property property = this.configuration.get("messages", "deaths", builder.sendDeaths());
+            Property property = this.configuration.get(messages, "connectionWindow", (int) builder.connectionWindow());
+            property.setComment("Specifies the amount of milliseconds connects and disconnects are held back for in order to suppress players who reconnect right away (0 to disable).");
+            property.setMinValue(0);
+
+            builder.connectionWindow(property.getInt());
+        }
+        {
+            Property property = this.configuration.get(messages, "deaths", builder.sendDeaths());
             property.setComment("Enables or disables the bridging of death messages.");
 
-            builder.sendConnects(property.getBoolean());
+            builder.sendDeaths(property.getBoolean());
+        }
+        {
+            Property property = this.configuration.get(messages, "deathWindow", (int) builder.deathWindow());
+            property.setComment("Specifies the amount of milliseconds during which further deaths of the same cause are merged into a single summary (0 to disable).");
+            property.setMinValue(0);
+
+            builder.deathWindow(property.getInt());
         }
         {
-            Property property = this.configuration.get("messages", "chat", builder.sendMessages());
+            Property property = this.configuration.get(messages, "chat", builder.sendMessages());
             property.setComment("Enables or disables the bridging of chat messages.");
 
             builder.sendMessages(property.getBoolean());
         }
 
+        // Routes
+        for (EventType type : EventType.values()) {
+            Property property = this.configuration.get(routes, type.name().toLowerCase(), new String[0]);
+            property.setComment("Specifies a list of channels which receive " + type.name().toLowerCase() + " events (all bridged channels when empty).");
+
+            builder.addRoute(type, property.getStringList());
+        }
+
         // Formats
         {
-            Property property = this.configuration.get("formats", "minecraftChat", builder.minecraftMessagePattern());
+            Property property = this.configuration.get(formats, "minecraftChat", builder.minecraftMessagePattern());
             builder.minecraftMessagePattern(property.getString());
         }
         {
-            Property property = this.configuration.get("formats", "discordJoin", builder.discordJoinPattern());
+            Property property = this.configuration.get(formats, "discordJoin", builder.discordJoinPattern());
             builder.discordJoinPattern(property.getString());
         }
         {
-            Property property = this.configuration.get("formats", "discordPart", builder.discordPartPattern());
+            Property property = this.configuration.get(formats, "discordPart", builder.discordPartPattern());
             builder.discordPartPattern(property.getString());
         }
         {
-            Property property = this.configuration.get("formats", "discordAchievement", builder.discordAchievementPattern());
+            Property property = this.configuration.get(formats, "discordAchievement", builder.discordAchievementPattern());
             builder.discordAchievementPattern(property.getString());
         }
         {
-            Property property = this.configuration.get("formats", "discordDeath", builder.discordDeathPattern());
+            Property property = this.configuration.get(formats, "discordDeath", builder.discordDeathPattern());
             builder.discordDeathPattern(property.getString());
         }
         {
-            Property property = this.configuration.get("formats", "discordMessage", builder.discordMessagePattern());
+            Property property = this.configuration.get(formats, "discordMessage", builder.discordMessagePattern());
             builder.discordMessagePattern(property.getString());
         }
-
-        if (!botToken.isEmpty() && !guildId.isEmpty()) {
-            this.bridge = builder.build(botToken, guildId);
-        }
     }
 
     @Mod.EventHandler
     public void onPostInitialization(@Nonnull FMLPostInitializationEvent event) {
         this.configuration.save();
 
-        if (this.bridge != null) {
-            // TODO: Add an option for this?
-            this.bridge.sendMessage(new MessageBuilder().appendFormat("The server is now back online."));
+        // TODO: Add an option for this?
+        this.bridges.forEach((b) -> b.sendStatus("The server is now back online."));
+    }
+
+    @Mod.EventHandler
+    public void onServerStarting(@Nonnull FMLServerStartingEvent event) {
+        event.registerServerCommand(new DiscordCommand(() -> this.bridges, this::reload));
+        event.registerServerCommand(new DiscordChatCommand(this.preferences));
+    }
+
+    @Mod.EventHandler
+    public void onServerStopping(@Nonnull FMLServerStoppingEvent event) {
+        if (this.watcher != null) {
+            this.watcher.shutdown();
         }
+
+        this.shutdown();
     }
 }
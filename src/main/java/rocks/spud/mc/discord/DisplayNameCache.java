@@ -0,0 +1,144 @@
+/*
+ * Copyright 2016 Johannes Donath <johannesd@torchmind.com>
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rocks.spud.mc.discord;
+
+import net.minecraft.command.ICommandSender;
+import net.minecraft.entity.player.EntityPlayer;
+import net.minecraft.scoreboard.ScorePlayerTeam;
+import net.minecraft.scoreboard.Team;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Caches the display names of players in their Discord markdown representation.
+ *
+ * Resolving a player's display name builds a new text component (including team formatting as
+ * well as click and hover events) which is immediately translated again. Since the result only
+ * changes when a mod refreshes the name or the player's team changes, it is cached per player
+ * instead.
+ *
+ * Team changes are detected lazily by comparing the team (as well as its prefix and suffix) a name
+ * has been resolved with against the player's current team. All other changes have to be reported
+ * through {@link #invalidate(UUID)}.
+ *
+ * @author <a href="mailto:johannesd@torchmind.com">Johannes Donath</a>
+ */
+final class DisplayNameCache {
+    private final Map<UUID, Entry> entries = new ConcurrentHashMap<>();
+
+    /**
+     * Retrieves the translated display name of a player.
+     *
+     * @param player a player.
+     * @return a display name.
+     */
+    @Nonnull
+    String get(@Nonnull EntityPlayer player) {
+        return this.get(player.getUniqueID(), player.getTeam(), player);
+    }
+
+    /**
+     * Retrieves the translated display name of a command sender which is identified by the
+     * specified unique identifier.
+     *
+     * @param id     a unique identifier.
+     * @param team   the sender's current team (if any).
+     * @param sender a sender which resolves the display name when it is not cached yet.
+     * @return a display name.
+     */
+    @Nonnull
+    String get(@Nonnull UUID id, @Nullable Team team, @Nonnull ICommandSender sender) {
+        Entry entry = this.entries.get(id);
+
+        if (entry != null && entry.matches(team)) {
+            return entry.name;
+        }
+
+        entry = new Entry(team, FormattingTranslator.translate(sender.getDisplayName()));
+        this.entries.put(id, entry);
+        return entry.name;
+    }
+
+    /**
+     * Discards the cached display name of a player.
+     *
+     * @param id a unique identifier.
+     */
+    void invalidate(@Nonnull UUID id) {
+        this.entries.remove(id);
+    }
+
+    /**
+     * Discards all cached display names.
+     */
+    void clear() {
+        this.entries.clear();
+    }
+
+    /**
+     * Retrieves the amount of cached display names.
+     *
+     * @return an amount of names.
+     */
+    int size() {
+        return this.entries.size();
+    }
+
+    /**
+     * Represents a display name along with the team state it has been resolved with.
+     */
+    private static final class Entry {
+        private final Team team;
+        private final String prefix;
+        private final String suffix;
+        private final String name;
+
+        Entry(@Nullable Team team, @Nonnull String name) {
+            this.team = team;
+            this.prefix = (team instanceof ScorePlayerTeam ? ((ScorePlayerTeam) team).getColorPrefix() : null);
+            this.suffix = (team instanceof ScorePlayerTeam ? ((ScorePlayerTeam) team).getColorSuffix() : null);
+            this.name = name;
+        }
+
+        /**
+         * Checks whether the cached name is still valid for the specified team.
+         *
+         * Teams replace their prefix and suffix strings when modified, hence an identity check is
+         * sufficient here.
+         *
+         * @param team a team.
+         * @return true if valid, false otherwise.
+         */
+        boolean matches(@Nullable Team team) {
+            if (this.team != team) {
+                return false;
+            }
+
+            if (!(team instanceof ScorePlayerTeam)) {
+                return true;
+            }
+
+            ScorePlayerTeam scoreTeam = (ScorePlayerTeam) team;
+            return this.prefix == scoreTeam.getColorPrefix() && this.suffix == scoreTeam.getColorSuffix();
+        }
+    }
+}
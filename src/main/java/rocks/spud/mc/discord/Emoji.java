@@ -0,0 +1,207 @@
+/*
+ * Copyright 2016 Johannes Donath <johannesd@torchmind.com>
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rocks.spud.mc.discord;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Translates emoji between their unicode representation (which vanilla fonts cannot display) and
+ * their Discord shortcodes (such as {@code :skull_crossbones:}).
+ *
+ * Lookups are backed by perfect hash tables which are generated from {@code emoji.txt} at build
+ * time (see {@code EmojiTableGenerator}) and thus require neither allocations nor any work upon
+ * startup. Candidates are hashed incrementally while they are scanned which permits matching the
+ * longest emoji at a certain position with a constant amount of work per character.
+ *
+ * @author <a href="mailto:johannesd@torchmind.com">Johannes Donath</a>
+ */
+final class Emoji {
+    private static final int HASH_OFFSET = 0x811C9DC5;
+    private static final int HASH_PRIME = 0x01000193;
+
+    private Emoji() {
+    }
+
+    /**
+     * Checks whether a character may start an emoji.
+     *
+     * All emoji either start with a high surrogate or a character within the symbol blocks
+     * between U+2000 and U+32FF (which is verified by the table generator).
+     *
+     * @param c a character.
+     * @return true if a candidate, false otherwise.
+     */
+    static boolean isCandidate(char c) {
+        return (c >= '\u2000' && c < '\u3300') || Character.isHighSurrogate(c);
+    }
+
+    /**
+     * Locates the longest emoji which starts at the specified index.
+     *
+     * @param s     a string.
+     * @param start the index of the emoji's first character.
+     * @param end   the index past the last character which may be part of the emoji.
+     * @return a table slot or -1 if there is no emoji at the index.
+     */
+    static int findUnicode(@Nonnull String s, int start, int end) {
+        final int limit = Math.min(end - start, EmojiTable.UNICODE_MAX_LENGTH);
+        int hash = HASH_OFFSET;
+        int match = -1;
+
+        for (int length = 1; length <= limit; ++length) {
+            hash = (hash ^ s.charAt(start + length - 1)) * HASH_PRIME;
+
+            int slot = slot(hash, EmojiTable.UNICODE_DISPLACEMENTS, EmojiTable.UNICODE_KEYS.length);
+            String key = EmojiTable.UNICODE_KEYS[slot];
+
+            if (key != null && key.length() == length && s.startsWith(key, start)) {
+                match = slot;
+            }
+        }
+
+        return match;
+    }
+
+    /**
+     * Retrieves the length of the emoji within a unicode table slot.
+     *
+     * @param slot a slot.
+     * @return a length (in UTF-16 code units).
+     */
+    static int getUnicodeLength(int slot) {
+        return EmojiTable.UNICODE_KEYS[slot].length();
+    }
+
+    /**
+     * Retrieves the shortcode (without colons) of the emoji within a unicode table slot.
+     *
+     * @param slot a slot.
+     * @return a shortcode.
+     */
+    @Nonnull
+    static String getShortcode(int slot) {
+        return EmojiTable.UNICODE_VALUES[slot];
+    }
+
+    /**
+     * Locates a shortcode which starts at the specified index and is terminated by a colon.
+     *
+     * @param s     a string.
+     * @param start the index which follows the opening colon.
+     * @param end   the index past the last character which may be part of the shortcode.
+     * @return a table slot or -1 if there is no known shortcode at the index.
+     */
+    static int findShortcode(@Nonnull String s, int start, int end) {
+        final int limit = Math.min(end, start + EmojiTable.SHORTCODE_MAX_LENGTH + 1);
+        int hash = HASH_OFFSET;
+
+        for (int i = start; i < limit; ++i) {
+            char c = s.charAt(i);
+
+            if (c == ':') {
+                if (i == start) {
+                    return -1;
+                }
+
+                int slot = slot(hash, EmojiTable.SHORTCODE_DISPLACEMENTS, EmojiTable.SHORTCODE_KEYS.length);
+                String key = EmojiTable.SHORTCODE_KEYS[slot];
+
+                return (key != null && key.length() == i - start && s.startsWith(key, start) ? slot : -1);
+            }
+
+            if (!((c >= 'a' && c <= 'z') || (c >= '0' && c <= '9') || c == '_' || c == '+' || c == '-')) {
+                return -1;
+            }
+
+            hash = (hash ^ c) * HASH_PRIME;
+        }
+
+        return -1;
+    }
+
+    /**
+     * Retrieves the length of the shortcode (without colons) within a shortcode table slot.
+     *
+     * @param slot a slot.
+     * @return a length.
+     */
+    static int getShortcodeLength(int slot) {
+        return EmojiTable.SHORTCODE_KEYS[slot].length();
+    }
+
+    /**
+     * Retrieves the unicode representation of the emoji within a shortcode table slot.
+     *
+     * @param slot a slot.
+     * @return an emoji.
+     */
+    @Nonnull
+    static String getUnicode(int slot) {
+        return EmojiTable.SHORTCODE_VALUES[slot];
+    }
+
+    /**
+     * Replaces all emoji within a string with their shortcodes.
+     *
+     * @param s a string.
+     * @return a string (or the original instance if it does not contain any emoji).
+     */
+    @Nonnull
+    static String toShortcodes(@Nonnull String s) {
+        final int length = s.length();
+        StringBuilder builder = null;
+        int copied = 0;
+        int i = 0;
+
+        while (i < length) {
+            int slot = (isCandidate(s.charAt(i)) ? findUnicode(s, i, length) : -1);
+
+            if (slot == -1) {
+                ++i;
+                continue;
+            }
+
+            if (builder == null) {
+                builder = new StringBuilder(length + 16);
+            }
+
+            builder.append(s, copied, i).append(':').append(getShortcode(slot)).append(':');
+            i += getUnicodeLength(slot);
+            copied = i;
+        }
+
+        if (builder == null) {
+            return s;
+        }
+
+        return builder.append(s, copied, length).toString();
+    }
+
+    /**
+     * Selects the table slot of a key (this function needs to match the one used by the table
+     * generator).
+     *
+     * @param hash          the key's hash code.
+     * @param displacements the displacement of each bucket.
+     * @param size          the amount of slots.
+     * @return a slot index.
+     */
+    private static int slot(int hash, @Nonnull int[] displacements, int size) {
+        int h = (hash ^ displacements[(hash & 0x7FFFFFFF) % displacements.length]) * 0x9E3779B1;
+        return ((h ^ (h >>> 16)) & 0x7FFFFFFF) % size;
+    }
+}
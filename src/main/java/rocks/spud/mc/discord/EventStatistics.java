@@ -0,0 +1,113 @@
+/*
+ * Copyright 2016 Johannes Donath <johannesd@torchmind.com>
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rocks.spud.mc.discord;
+
+import java.beans.ConstructorProperties;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Represents a snapshot of the statistics which have been collected for a single event type.
+ *
+ * @author <a href="mailto:johannesd@torchmind.com">Johannes Donath</a>
+ */
+public final class EventStatistics {
+    private final String type;
+    private final long queued;
+    private final long sent;
+    private final long dropped;
+    private final long failed;
+    private final HistogramSnapshot handlerTime;
+    private final HistogramSnapshot latency;
+
+    @ConstructorProperties({"type", "queued", "sent", "dropped", "failed", "handlerTime", "latency"})
+    public EventStatistics(@Nonnull String type, long queued, long sent, long dropped, long failed, @Nonnull HistogramSnapshot handlerTime, @Nonnull HistogramSnapshot latency) {
+        this.type = type;
+        this.queued = queued;
+        this.sent = sent;
+        this.dropped = dropped;
+        this.failed = failed;
+        this.handlerTime = handlerTime;
+        this.latency = latency;
+    }
+
+    /**
+     * Retrieves the name of the event type.
+     *
+     * @return a type name.
+     */
+    @Nonnull
+    public String getType() {
+        return this.type;
+    }
+
+    /**
+     * Retrieves the amount of events which have been passed to the sender thread.
+     *
+     * @return an amount of events.
+     */
+    public long getQueued() {
+        return this.queued;
+    }
+
+    /**
+     * Retrieves the amount of times an event has been acknowledged by Discord (once per channel).
+     *
+     * @return an amount of events.
+     */
+    public long getSent() {
+        return this.sent;
+    }
+
+    /**
+     * Retrieves the amount of events which have been discarded before reaching Discord.
+     *
+     * @return an amount of events.
+     */
+    public long getDropped() {
+        return this.dropped;
+    }
+
+    /**
+     * Retrieves the amount of times an event has been rejected by Discord (once per channel).
+     *
+     * @return an amount of events.
+     */
+    public long getFailed() {
+        return this.failed;
+    }
+
+    /**
+     * Retrieves the time spent on the server thread while handling events of this type.
+     *
+     * @return a snapshot.
+     */
+    @Nonnull
+    public HistogramSnapshot getHandlerTime() {
+        return this.handlerTime;
+    }
+
+    /**
+     * Retrieves the time between the creation of an event and its acknowledgement by Discord.
+     *
+     * @return a snapshot.
+     */
+    @Nonnull
+    public HistogramSnapshot getLatency() {
+        return this.latency;
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2016 Johannes Donath <johannesd@torchmind.com>
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rocks.spud.mc.discord;
+
+/**
+ * Represents the types of events which are forwarded from Minecraft to Discord.
+ *
+ * @author <a href="mailto:johannesd@torchmind.com">Johannes Donath</a>
+ */
+public enum EventType {
+
+    /**
+     * A player has earned an achievement.
+     */
+    ACHIEVEMENT,
+
+    /**
+     * A player has connected to the server.
+     */
+    CONNECT,
+
+    /**
+     * A player has disconnected from the server.
+     */
+    DISCONNECT,
+
+    /**
+     * A player has died.
+     */
+    DEATH,
+
+    /**
+     * A player has sent a chat message.
+     */
+    CHAT,
+
+    /**
+     * The server state has changed (for instance when the server has finished starting).
+     */
+    STATUS
+}
@@ -0,0 +1,470 @@
+/*
+ * Copyright 2016 Johannes Donath <johannesd@torchmind.com>
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rocks.spud.mc.discord;
+
+import net.minecraft.util.text.ITextComponent;
+import net.minecraft.util.text.Style;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Translates Minecraft text (styled components as well as legacy formatting codes) into
+ * Discord markdown.
+ *
+ * Text is processed in a single pass: Bold, italic, underlined and struck through text is wrapped
+ * in the respective markdown delimiters (colors and obfuscation have no equivalent and are
+ * dropped) while all characters which Discord would otherwise interpret as markdown or mention
+ * syntax are escaped. Delimiters are kept on a stack so that they are always closed in the reverse
+ * order they have been opened in and are placed directly next to the text they enclose (Discord
+ * does not recognize delimiters which are followed or preceded by whitespace).
+ *
+ * Links are passed on verbatim as escaping them would alter their target (they end at the first
+ * character which may begin a mention in order to keep mentions escaped) while emoji shortcodes
+ * (such as {@code :thumbsup:}) are expanded into their unicode representation. Player names remain
+ * mentionable (see {@link MentionIndex#resolve(String)}) while {@code @everyone} and {@code @here}
+ * are defused once the entire text has been translated (formatting codes and component boundaries
+ * may otherwise separate them from their at sign within the input).
+ *
+ * Instances keep their buffers between invocations and are thus kept per thread.
+ *
+ * @author <a href="mailto:johannesd@torchmind.com">Johannes Donath</a>
+ */
+final class FormattingTranslator {
+    private static final ThreadLocal<FormattingTranslator> instance = ThreadLocal.withInitial(FormattingTranslator::new);
+
+    private static final char FORMATTING_CODE = '\u00a7';
+    private static final char ZERO_WIDTH_SPACE = '\u200b';
+
+    private static final int BOLD = 1;
+    private static final int ITALIC = 2;
+    private static final int UNDERLINE = 4;
+    private static final int STRIKETHROUGH = 8;
+
+    // delimiters are indexed by the position of their flag and opened in this order
+    private static final String[] DELIMITERS = {"**", "*", "__", "~~"};
+
+    private static final boolean[] ORDINARY = new boolean[128];
+
+    static {
+        for (char c = 0; c < ORDINARY.length; ++c) {
+            ORDINARY[c] = !Character.isWhitespace(c) && "\\*_~`|<:h".indexOf(c) == -1;
+        }
+    }
+
+    private final StringBuilder out = new StringBuilder(256);
+    private final StringBuilder whitespace = new StringBuilder(16);
+    private final int[] stack = new int[DELIMITERS.length];
+    private int depth;
+    private int open;
+
+    private FormattingTranslator() {
+    }
+
+    /**
+     * Translates a component (including all of its children) into markdown.
+     *
+     * @param component a component.
+     * @return a markdown representation of the component.
+     */
+    @Nonnull
+    static String translate(@Nonnull ITextComponent component) {
+        FormattingTranslator translator = instance.get();
+
+        try {
+            // iterating a component yields all of its parts along with their effective styles
+            for (ITextComponent part : component) {
+                String text = part.getUnformattedComponentText();
+                translator.append(text, 0, text.length(), flags(part.getStyle()));
+            }
+
+            return translator.finish();
+        } finally {
+            translator.reset();
+        }
+    }
+
+    /**
+     * Translates a string which may contain legacy formatting codes into markdown.
+     *
+     * @param text a string.
+     * @return a markdown representation of the string.
+     */
+    @Nonnull
+    static String translate(@Nonnull String text) {
+        FormattingTranslator translator = instance.get();
+
+        try {
+            translator.append(text, 0, text.length(), 0);
+            return translator.finish();
+        } finally {
+            translator.reset();
+        }
+    }
+
+    /**
+     * Appends a section of text.
+     *
+     * @param s     a string.
+     * @param start the index of the section's first character.
+     * @param end   the index past the section's last character.
+     * @param flags the style flags which apply to the beginning of the section.
+     */
+    private void append(@Nonnull String s, int start, int end, int flags) {
+        int i = start;
+
+        while (i < end) {
+            char c = s.charAt(i);
+
+            if (c == FORMATTING_CODE) {
+                // the client skips the character following the code marker regardless of whether
+                // it is a known code
+                if (i + 1 < end) {
+                    flags = applyCode(flags, s.charAt(i + 1));
+                }
+
+                i += 2;
+                continue;
+            }
+
+            if (Character.isWhitespace(c)) {
+                this.whitespace.append(c);
+                ++i;
+                continue;
+            }
+
+            this.transition(flags);
+
+            if (c == 'h' && (i == start || !Character.isLetterOrDigit(s.charAt(i - 1)))) {
+                int linkEnd = linkEnd(s, i, end);
+
+                if (linkEnd != -1) {
+                    this.out.append(s, i, linkEnd);
+                    i = linkEnd;
+                    continue;
+                }
+            }
+
+            switch (c) {
+                case '\\':
+                case '*':
+                case '_':
+                case '~':
+                case '`':
+                case '|':
+                    this.out.append('\\').append(c);
+                    break;
+                case '<':
+                    // channel, role and user mentions as well as custom emojis
+                    if (isMention(s, i + 1, end)) {
+                        this.out.append('\\');
+                    }
+
+                    this.out.append(c);
+                    break;
+                case ':': {
+                    // shortcodes typed by players are expanded into their unicode representation
+                    int slot = Emoji.findShortcode(s, i + 1, end);
+
+                    if (slot == -1) {
+                        this.out.append(c);
+                        break;
+                    }
+
+                    this.out.append(Emoji.getUnicode(slot));
+                    i += Emoji.getShortcodeLength(slot) + 2;
+                    continue;
+                }
+                default: {
+                    // ordinary characters are copied in bulk up to the next character which
+                    // requires attention
+                    int run = i + 1;
+
+                    while (run < end && isOrdinary(s.charAt(run))) {
+                        ++run;
+                    }
+
+                    this.out.append(s, i, run);
+                    i = run;
+                    continue;
+                }
+            }
+
+            ++i;
+        }
+    }
+
+    /**
+     * Closes and opens delimiters in preparation for a non-whitespace character with the specified
+     * style.
+     *
+     * Whitespace which has been encountered since the previous character is placed after all
+     * closing and before all opening delimiters.
+     *
+     * @param flags the character's style flags.
+     */
+    private void transition(int flags) {
+        if (flags != this.open) {
+            this.close(flags);
+        }
+
+        if (this.whitespace.length() != 0) {
+            this.out.append(this.whitespace);
+            this.whitespace.setLength(0);
+        }
+
+        if (flags == this.open) {
+            return;
+        }
+
+        for (int i = 0; i < DELIMITERS.length; ++i) {
+            int flag = 1 << i;
+
+            if ((flags & flag) == 0 || (this.open & flag) != 0) {
+                continue;
+            }
+
+            String delimiter = DELIMITERS[i];
+
+            // prevents adjacent delimiters from merging (e.g. a closing "**" followed by "*")
+            if (this.out.length() != 0 && this.out.charAt(this.out.length() - 1) == delimiter.charAt(0)) {
+                this.out.append(ZERO_WIDTH_SPACE);
+            }
+
+            this.out.append(delimiter);
+            this.stack[this.depth++] = i;
+            this.open |= flag;
+        }
+    }
+
+    /**
+     * Closes all delimiters which are not part of the specified style (as well as all delimiters
+     * which have been opened after them).
+     *
+     * @param flags a set of style flags.
+     */
+    private void close(int flags) {
+        int retained = 0;
+
+        while (retained < this.depth && (flags & (1 << this.stack[retained])) != 0) {
+            ++retained;
+        }
+
+        while (this.depth > retained) {
+            int index = this.stack[--this.depth];
+
+            this.out.append(DELIMITERS[index]);
+            this.open &= ~(1 << index);
+        }
+    }
+
+    /**
+     * Closes all remaining delimiters and retrieves the translated text.
+     *
+     * @return the translated text.
+     */
+    @Nonnull
+    private String finish() {
+        this.close(0);
+        this.out.append(this.whitespace);
+        this.defuse();
+        return this.out.toString();
+    }
+
+    /**
+     * Separates {@code @everyone} and {@code @here} within the translated text from their at sign.
+     */
+    private void defuse() {
+        int i = 0;
+
+        while ((i = this.out.indexOf("@", i) + 1) != 0) {
+            if (startsWith(this.out, "everyone", i) || startsWith(this.out, "here", i)) {
+                this.out.insert(i, ZERO_WIDTH_SPACE);
+            }
+        }
+    }
+
+    /**
+     * Resets the translator state in preparation for the next text.
+     */
+    private void reset() {
+        this.out.setLength(0);
+        this.whitespace.setLength(0);
+        this.depth = 0;
+        this.open = 0;
+    }
+
+    /**
+     * Converts a style into a set of style flags.
+     *
+     * @param style a style.
+     * @return a set of flags.
+     */
+    private static int flags(@Nonnull Style style) {
+        int flags = 0;
+
+        if (style.getBold()) {
+            flags |= BOLD;
+        }
+
+        if (style.getItalic()) {
+            flags |= ITALIC;
+        }
+
+        if (style.getUnderlined()) {
+            flags |= UNDERLINE;
+        }
+
+        if (style.getStrikethrough()) {
+            flags |= STRIKETHROUGH;
+        }
+
+        return flags;
+    }
+
+    /**
+     * Applies a legacy formatting code to a set of style flags.
+     *
+     * Much like the client, colors reset all other formatting.
+     *
+     * @param flags a set of flags.
+     * @param code  a formatting code.
+     * @return the resulting set of flags.
+     */
+    private static int applyCode(int flags, char code) {
+        switch (Character.toLowerCase(code)) {
+            case 'l':
+                return flags | BOLD;
+            case 'o':
+                return flags | ITALIC;
+            case 'n':
+                return flags | UNDERLINE;
+            case 'm':
+                return flags | STRIKETHROUGH;
+            case 'k':
+                return flags;
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * Locates the end of a link which starts at the specified index.
+     *
+     * @param s     a string.
+     * @param start the index of the link's first character.
+     * @param end   the index past the last character which may be part of the link.
+     * @return the index past the link's last character or -1 if there is no link at the index.
+     */
+    private static int linkEnd(@Nonnull String s, int start, int end) {
+        int i;
+
+        if (s.startsWith("https://", start)) {
+            i = start + 8;
+        } else if (s.startsWith("http://", start)) {
+            i = start + 7;
+        } else {
+            return -1;
+        }
+
+        int scheme = i;
+
+        // mention syntax terminates the link so that it is escaped like any other text
+        while (i < end && !isLinkTerminator(s.charAt(i))) {
+            ++i;
+        }
+
+        return (i == scheme ? -1 : i);
+    }
+
+    /**
+     * Checks whether a character ends a link.
+     *
+     * @param c a character.
+     * @return true if terminating, false otherwise.
+     */
+    private static boolean isLinkTerminator(char c) {
+        switch (c) {
+            case FORMATTING_CODE:
+            case '<':
+            case '>':
+            case '@':
+            case '`':
+                return true;
+            default:
+                return Character.isWhitespace(c);
+        }
+    }
+
+    /**
+     * Checks whether a sequence contains a prefix at the specified index.
+     *
+     * @param s      a sequence.
+     * @param prefix a prefix.
+     * @param offset an index.
+     * @return true if present, false otherwise.
+     */
+    private static boolean startsWith(@Nonnull CharSequence s, @Nonnull String prefix, int offset) {
+        if (s.length() - offset < prefix.length()) {
+            return false;
+        }
+
+        for (int i = 0; i < prefix.length(); ++i) {
+            if (s.charAt(offset + i) != prefix.charAt(i)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Checks whether a character can be copied without any further examination.
+     *
+     * @param c a character.
+     * @return true if ordinary, false otherwise.
+     */
+    private static boolean isOrdinary(char c) {
+        if (c < ORDINARY.length) {
+            return ORDINARY[c];
+        }
+
+        return c != FORMATTING_CODE && !Character.isWhitespace(c);
+    }
+
+    /**
+     * Checks whether the characters following an opening angle bracket form a mention or custom
+     * emoji.
+     *
+     * @param s     a string.
+     * @param start the index of the character which follows the bracket.
+     * @param end   the index past the last character which may be examined.
+     * @return true if a mention, false otherwise.
+     */
+    private static boolean isMention(@Nonnull String s, int start, int end) {
+        if (start >= end) {
+            return false;
+        }
+
+        char c = s.charAt(start);
+
+        if (c == '@' || c == '#' || c == ':') {
+            return true;
+        }
+
+        return (c == 'a' || c == 't') && start + 1 < end && s.charAt(start + 1) == ':';
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2016 Johannes Donath <johannesd@torchmind.com>
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rocks.spud.mc.discord;
+
+import java.beans.ConstructorProperties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Represents a snapshot of a latency histogram.
+ *
+ * All values are expressed in nanoseconds.
+ *
+ * @author <a href="mailto:johannesd@torchmind.com">Johannes Donath</a>
+ */
+public final class HistogramSnapshot {
+    private final long count;
+    private final long mean;
+    private final long median;
+    private final long percentile90;
+    private final long percentile99;
+    private final long maximum;
+
+    @ConstructorProperties({"count", "mean", "median", "percentile90", "percentile99", "maximum"})
+    public HistogramSnapshot(long count, long mean, long median, long percentile90, long percentile99, long maximum) {
+        this.count = count;
+        this.mean = mean;
+        this.median = median;
+        this.percentile90 = percentile90;
+        this.percentile99 = percentile99;
+        this.maximum = maximum;
+    }
+
+    /**
+     * Retrieves the amount of recorded values.
+     *
+     * @return an amount of values.
+     */
+    public long getCount() {
+        return this.count;
+    }
+
+    /**
+     * Retrieves the mean of all recorded values.
+     *
+     * @return a mean.
+     */
+    public long getMean() {
+        return this.mean;
+    }
+
+    /**
+     * Retrieves the 50th percentile.
+     *
+     * @return a value.
+     */
+    public long getMedian() {
+        return this.median;
+    }
+
+    /**
+     * Retrieves the 90th percentile.
+     *
+     * @return a value.
+     */
+    public long getPercentile90() {
+        return this.percentile90;
+    }
+
+    /**
+     * Retrieves the 99th percentile.
+     *
+     * @return a value.
+     */
+    public long getPercentile99() {
+        return this.percentile99;
+    }
+
+    /**
+     * Retrieves the largest recorded value.
+     *
+     * @return a value.
+     */
+    public long getMaximum() {
+        return this.maximum;
+    }
+
+    /**
+     * Formats a value of this snapshot in a human readable unit.
+     *
+     * @param value a value (in nanoseconds).
+     * @return a formatted value.
+     */
+    public static String format(long value) {
+        if (value >= TimeUnit.MILLISECONDS.toNanos(10)) {
+            return TimeUnit.NANOSECONDS.toMillis(value) + "ms";
+        }
+
+        return TimeUnit.NANOSECONDS.toMicros(value) + "us";
+    }
+}
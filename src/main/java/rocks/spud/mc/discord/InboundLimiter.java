@@ -0,0 +1,131 @@
+/*
+ * Copyright 2016 Johannes Donath <johannesd@torchmind.com>
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rocks.spud.mc.discord;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Limits the rate at which messages from Discord are accepted in order to protect the server
+ * thread from raids.
+ *
+ * Two token buckets are consulted for every message: One which is shared between all authors and
+ * one per author. Messages which are rejected by either bucket are counted so that players may be
+ * informed about them through a periodic summary rather than a message each.
+ *
+ * @author <a href="mailto:johannesd@torchmind.com">Johannes Donath</a>
+ */
+final class InboundLimiter {
+    private static final long PERIOD = 1000;
+    private static final long SUMMARY_INTERVAL = TimeUnit.SECONDS.toNanos(1);
+    private static final long SWEEP_INTERVAL = TimeUnit.MINUTES.toNanos(1);
+
+    private final TokenBucket global;
+    private final int authorLimit;
+    private final Map<String, TokenBucket> authors = new HashMap<>();
+    private long sweptAt;
+    private int hidden;
+    private long summarizedAt;
+
+    /**
+     * Constructs a new limiter.
+     *
+     * @param globalLimit the maximum amount of messages per second (or zero to disable).
+     * @param authorLimit the maximum amount of messages per second and author (or zero to
+     *                    disable).
+     * @param now         the current time (as reported by {@link System#nanoTime()}).
+     */
+    InboundLimiter(int globalLimit, int authorLimit, long now) {
+        if (globalLimit < 0 || authorLimit < 0) {
+            throw new IllegalArgumentException("Limits must not be negative: " + globalLimit + ", " + authorLimit);
+        }
+
+        this.global = (globalLimit == 0 ? null : new TokenBucket(globalLimit, PERIOD, now));
+        this.authorLimit = authorLimit;
+        this.sweptAt = now;
+        this.summarizedAt = now - SUMMARY_INTERVAL;
+    }
+
+    /**
+     * Attempts to accept a message from the specified author. Rejected messages are counted
+     * towards the next summary.
+     *
+     * @param authorId an author's identifier.
+     * @param now      the current time (as reported by {@link System#nanoTime()}).
+     * @return true if accepted, false otherwise.
+     */
+    synchronized boolean tryAcquire(@Nonnull String authorId, long now) {
+        if (this.authorLimit != 0) {
+            if (now - this.sweptAt >= SWEEP_INTERVAL) {
+                this.sweep(now);
+            }
+
+            TokenBucket bucket = this.authors.computeIfAbsent(authorId, (id) -> new TokenBucket(this.authorLimit, PERIOD, now));
+
+            if (!bucket.tryAcquire(now)) {
+                ++this.hidden;
+                return false;
+            }
+        }
+
+        if (this.global != null && !this.global.tryAcquire(now)) {
+            ++this.hidden;
+            return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Retrieves and resets the amount of rejected messages provided that the last summary has
+     * been issued at least a second ago.
+     *
+     * @param now the current time (as reported by {@link System#nanoTime()}).
+     * @return an amount of messages or zero if no summary is due.
+     */
+    synchronized int takeHidden(long now) {
+        if (this.hidden == 0 || now - this.summarizedAt < SUMMARY_INTERVAL) {
+            return 0;
+        }
+
+        int hidden = this.hidden;
+        this.hidden = 0;
+        this.summarizedAt = now;
+        return hidden;
+    }
+
+    /**
+     * Removes the buckets of all authors which have not sent a message in a while.
+     *
+     * @param now the current time (as reported by {@link System#nanoTime()}).
+     */
+    private void sweep(long now) {
+        Iterator<TokenBucket> it = this.authors.values().iterator();
+
+        while (it.hasNext()) {
+            if (it.next().getTokens(now) == this.authorLimit) {
+                it.remove();
+            }
+        }
+
+        this.sweptAt = now;
+    }
+}
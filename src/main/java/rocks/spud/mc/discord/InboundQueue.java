@@ -0,0 +1,90 @@
+/*
+ * Copyright 2016 Johannes Donath <johannesd@torchmind.com>
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rocks.spud.mc.discord;
+
+import net.minecraft.util.text.ITextComponent;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Collects messages which have been received from Discord until they are delivered on the server
+ * thread in a single batch per tick.
+ *
+ * @author <a href="mailto:johannesd@torchmind.com">Johannes Donath</a>
+ */
+final class InboundQueue {
+    private final Queue<ITextComponent> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger size = new AtomicInteger();
+    private final int maximumPerTick;
+
+    /**
+     * Constructs a new queue.
+     *
+     * @param maximumPerTick the maximum amount of messages to deliver within a single tick.
+     */
+    InboundQueue(int maximumPerTick) {
+        if (maximumPerTick < 1) {
+            throw new IllegalArgumentException("Per-tick limit must be positive: " + maximumPerTick);
+        }
+
+        this.maximumPerTick = maximumPerTick;
+    }
+
+    /**
+     * Enqueues a message for delivery.
+     *
+     * @param message a message.
+     */
+    void offer(@Nonnull ITextComponent message) {
+        this.queue.offer(message);
+        this.size.incrementAndGet();
+    }
+
+    /**
+     * Passes up to the configured per-tick limit of messages to the supplied consumer. Any
+     * remaining messages are kept for the next tick.
+     *
+     * @param consumer a consumer.
+     * @return the amount of delivered messages.
+     */
+    int drain(@Nonnull Consumer<ITextComponent> consumer) {
+        int i = 0;
+        ITextComponent message;
+
+        while (i < this.maximumPerTick && (message = this.queue.poll()) != null) {
+            this.size.decrementAndGet();
+            consumer.accept(message);
+            ++i;
+        }
+
+        return i;
+    }
+
+    /**
+     * Retrieves the amount of messages which are waiting for delivery.
+     *
+     * @return an amount of messages.
+     */
+    int size() {
+        return this.size.get();
+    }
+}
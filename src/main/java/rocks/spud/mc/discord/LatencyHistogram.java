@@ -0,0 +1,137 @@
+/*
+ * Copyright 2016 Johannes Donath <johannesd@torchmind.com>
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rocks.spud.mc.discord;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Provides a lock-free histogram with logarithmic buckets which are linearly subdivided (similar to
+ * HdrHistogram) in order to record durations with a bounded relative error of roughly three percent.
+ *
+ * Values are recorded in nanoseconds. Values beyond roughly 18 minutes are clamped.
+ *
+ * @author <a href="mailto:johannesd@torchmind.com">Johannes Donath</a>
+ */
+final class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKET_HALF = 1 << SUB_BUCKET_BITS;
+    private static final int MAXIMUM_BITS = 40;
+    private static final long MAXIMUM_VALUE = (1L << MAXIMUM_BITS) - 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray((MAXIMUM_BITS - SUB_BUCKET_BITS + 1) * SUB_BUCKET_HALF);
+    private final LongAdder total = new LongAdder();
+
+    /**
+     * Records a single value.
+     *
+     * @param value a value (in nanoseconds).
+     */
+    void record(long value) {
+        if (value < 0) {
+            value = 0;
+        } else if (value > MAXIMUM_VALUE) {
+            value = MAXIMUM_VALUE;
+        }
+
+        this.counts.incrementAndGet(index(value));
+        this.total.add(value);
+    }
+
+    /**
+     * Creates a snapshot of the values recorded so far.
+     *
+     * @return a snapshot.
+     */
+    @Nonnull
+    HistogramSnapshot snapshot() {
+        final int length = this.counts.length();
+        final long[] counts = new long[length];
+        long count = 0;
+
+        for (int i = 0; i < length; ++i) {
+            counts[i] = this.counts.get(i);
+            count += counts[i];
+        }
+
+        if (count == 0) {
+            return new HistogramSnapshot(0, 0, 0, 0, 0, 0);
+        }
+
+        long max = 0;
+
+        for (int i = length - 1; i >= 0; --i) {
+            if (counts[i] != 0) {
+                max = upperBound(i);
+                break;
+            }
+        }
+
+        return new HistogramSnapshot(count, this.total.sum() / count, percentile(counts, count, 0.5), percentile(counts, count, 0.9), percentile(counts, count, 0.99), max);
+    }
+
+    /**
+     * Computes the (upper bound of the) value at a given percentile.
+     *
+     * @param counts     the bucket counts.
+     * @param count      the total amount of values.
+     * @param percentile a percentile (between zero and one).
+     * @return a value (in nanoseconds).
+     */
+    private static long percentile(@Nonnull long[] counts, long count, double percentile) {
+        final long target = Math.max(1, (long) Math.ceil(count * percentile));
+        long seen = 0;
+
+        for (int i = 0; i < counts.length; ++i) {
+            seen += counts[i];
+
+            if (seen >= target) {
+                return upperBound(i);
+            }
+        }
+
+        return MAXIMUM_VALUE;
+    }
+
+    /**
+     * Computes the bucket index for a value.
+     *
+     * @param value a value.
+     * @return an index.
+     */
+    private static int index(long value) {
+        final int magnitude = 63 - Long.numberOfLeadingZeros(value | 1);
+        final int bucket = Math.max(0, magnitude - SUB_BUCKET_BITS);
+
+        return (bucket << SUB_BUCKET_BITS) + (int) (value >>> bucket);
+    }
+
+    /**
+     * Computes the highest value which is mapped to a given bucket index.
+     *
+     * @param index an index.
+     * @return a value.
+     */
+    private static long upperBound(int index) {
+        final int bucket = Math.max(0, (index >> SUB_BUCKET_BITS) - 1);
+        final long subBucket = index - ((long) bucket << SUB_BUCKET_BITS);
+
+        return ((subBucket + 1) << bucket) - 1;
+    }
+}
@@ -0,0 +1,605 @@
+/*
+ * Copyright 2016 Johannes Donath <johannesd@torchmind.com>
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rocks.spud.mc.discord;
+
+import net.minecraft.util.text.ITextComponent;
+import net.minecraft.util.text.Style;
+import net.minecraft.util.text.TextComponentString;
+import net.minecraft.util.text.TextFormatting;
+import net.minecraft.util.text.event.ClickEvent;
+
+import java.util.Arrays;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Translates the markdown dialect used by Discord into styled text components.
+ *
+ * The input is scanned exactly once. Text between markup is recorded as slices of the original
+ * string while emphasis delimiters are matched against a stack of open delimiters as they are
+ * encountered (a closing delimiter discards all unmatched delimiters which have been opened after
+ * its partner). Once the end of the input is reached, the recorded tokens are turned into
+ * components while adjacent slices which share the same style are merged into a single component.
+ * Delimiters which have not been matched are kept as literal text.
+ *
+ * The following subset of Discord's markdown is supported:
+ *
+ * <ul>
+ * <li>{@code *italic*}, {@code _italic_}, {@code **bold**}, {@code __underline__}, {@code
+ * ~~strikethrough~~} as well as their combinations (e.g. {@code ***bold italic***})</li>
+ * <li>{@code `code`}, {@code ``code``} and {@code ```code blocks```} (including an optional
+ * language tag) whose contents are not formatted any further</li>
+ * <li>{@code http://} and {@code https://} links (optionally wrapped in angle brackets) which are
+ * turned into clickable components</li>
+ * <li>backslash escapes of all markup characters</li>
+ * <li>unicode emoji which are replaced with their shortcodes (see {@link Emoji})</li>
+ * </ul>
+ *
+ * Instances keep their token buffers between invocations and are thus kept per thread (see {@link
+ * #appendTo(ITextComponent, String)}).
+ *
+ * @author <a href="mailto:johannesd@torchmind.com">Johannes Donath</a>
+ */
+final class MarkdownTranslator {
+    private static final ThreadLocal<MarkdownTranslator> instance = ThreadLocal.withInitial(MarkdownTranslator::new);
+
+    private static final int TEXT = 0;
+    private static final int DELIMITER = 1;
+    private static final int CODE = 2;
+    private static final int LINK = 3;
+    private static final int EMOJI = 4;
+
+    private static final int BOLD = 1;
+    private static final int ITALIC = 2;
+    private static final int UNDERLINE = 4;
+    private static final int STRIKETHROUGH = 8;
+
+    // delimiter kinds are indexed by character and run length (e.g. "**" or "__")
+    private static final int[] STYLES = {ITALIC, BOLD, BOLD | ITALIC, ITALIC, UNDERLINE, UNDERLINE | ITALIC, STRIKETHROUGH};
+    private static final int MATCHED = 0x100;
+    private static final int OPENER = 0x200;
+    private static final int KIND_MASK = 0xFF;
+
+    private int[] kinds = new int[64];
+    private int[] starts = new int[64];
+    private int[] ends = new int[64];
+    private int[] data = new int[64];
+    private int size;
+
+    private int[] openers = new int[16];
+    private int openerCount;
+    private final int[] openCounts = new int[STYLES.length];
+    private final int[] activeCounts = new int[STYLES.length];
+    private final int[] codeSearchFailed = new int[4];
+    private final StringBuilder text = new StringBuilder(256);
+
+    private MarkdownTranslator() {
+    }
+
+    /**
+     * Translates a message into a new component.
+     *
+     * @param markdown a message.
+     * @return a component.
+     */
+    @Nonnull
+    static ITextComponent translate(@Nonnull String markdown) {
+        TextComponentString component = new TextComponentString("");
+        appendTo(component, markdown);
+        return component;
+    }
+
+    /**
+     * Translates a message and appends the resulting components to the specified parent.
+     *
+     * @param parent   a parent component.
+     * @param markdown a message.
+     */
+    static void appendTo(@Nonnull ITextComponent parent, @Nonnull String markdown) {
+        MarkdownTranslator translator = instance.get();
+
+        try {
+            translator.scan(markdown);
+            translator.build(markdown, parent);
+        } finally {
+            translator.reset();
+        }
+    }
+
+    /**
+     * Splits a message into tokens and matches its emphasis delimiters.
+     *
+     * @param s a message.
+     */
+    private void scan(@Nonnull String s) {
+        final int length = s.length();
+        int pending = 0;
+        int i = 0;
+
+        Arrays.fill(this.codeSearchFailed, Integer.MAX_VALUE);
+
+        while (i < length) {
+            char c = s.charAt(i);
+
+            switch (c) {
+                case '\\':
+                    if (i + 1 < length && isEscapable(s.charAt(i + 1))) {
+                        this.add(TEXT, pending, i, 0);
+                        pending = i + 1;
+                        i += 2;
+                        continue;
+                    }
+
+                    break;
+                case '*':
+                case '_':
+                case '~': {
+                    int run = runLength(s, i, c);
+
+                    if (this.delimiter(s, i, run, pending)) {
+                        pending = i + run;
+                    }
+
+                    i += run;
+                    continue;
+                }
+                case '`': {
+                    int run = runLength(s, i, c);
+                    int end = this.code(s, i, run, pending);
+
+                    if (end != -1) {
+                        pending = end;
+                        i = end;
+                    } else {
+                        i += run;
+                    }
+
+                    continue;
+                }
+                case '<':
+                    if (i + 1 < length && s.charAt(i + 1) == 'h') {
+                        int end = linkEnd(s, i + 1);
+
+                        if (end != -1 && end < length && s.charAt(end) == '>') {
+                            this.add(TEXT, pending, i, 0);
+                            this.add(LINK, i + 1, end, 0);
+                            pending = i = end + 1;
+                            continue;
+                        }
+                    }
+
+                    break;
+                case 'h':
+                    if (i == 0 || !Character.isLetterOrDigit(s.charAt(i - 1))) {
+                        int end = linkEnd(s, i);
+
+                        if (end != -1) {
+                            this.add(TEXT, pending, i, 0);
+                            this.add(LINK, i, end, 0);
+                            pending = i = end;
+                            continue;
+                        }
+                    }
+
+                    break;
+                default:
+                    // emoji are replaced with their shortcodes as vanilla fonts cannot display them
+                    if (Emoji.isCandidate(c)) {
+                        int slot = Emoji.findUnicode(s, i, length);
+
+                        if (slot != -1) {
+                            this.add(TEXT, pending, i, 0);
+                            this.add(EMOJI, i, i + Emoji.getUnicodeLength(slot), slot);
+                            pending = i = i + Emoji.getUnicodeLength(slot);
+                            continue;
+                        }
+                    }
+
+                    break;
+            }
+
+            ++i;
+        }
+
+        this.add(TEXT, pending, length, 0);
+    }
+
+    /**
+     * Records an emphasis delimiter and attempts to match it against a previously opened
+     * delimiter.
+     *
+     * @param s       a message.
+     * @param start   the index of the delimiter's first character.
+     * @param run     the delimiter's length.
+     * @param pending the start of the text which precedes the delimiter.
+     * @return true if recorded, false if the delimiter is to be treated as regular text.
+     */
+    private boolean delimiter(@Nonnull String s, int start, int run, int pending) {
+        final char c = s.charAt(start);
+        final int kind;
+
+        if (c == '~') {
+            if (run != 2) {
+                return false;
+            }
+
+            kind = 6;
+        } else {
+            if (run > 3) {
+                return false;
+            }
+
+            kind = (c == '*' ? 0 : 3) + run - 1;
+        }
+
+        final char before = (start == 0 ? ' ' : s.charAt(start - 1));
+        final char after = (start + run == s.length() ? ' ' : s.charAt(start + run));
+        boolean canOpen = !Character.isWhitespace(after);
+        boolean canClose = !Character.isWhitespace(before);
+
+        // underscores within words (e.g. snake_case) are not considered markup
+        if (c == '_') {
+            canOpen &= !Character.isLetterOrDigit(before);
+            canClose &= !Character.isLetterOrDigit(after);
+        }
+
+        if (!canOpen && !canClose) {
+            return false;
+        }
+
+        this.add(TEXT, pending, start, 0);
+        int index = this.add(DELIMITER, start, start + run, kind);
+
+        if (canClose && this.openCounts[kind] != 0) {
+            // openers are only searched when a partner is known to exist, all openers which are
+            // skipped on the way are discarded in order to keep the matched pairs properly nested
+            while (true) {
+                int opener = this.openers[--this.openerCount];
+                int openerKind = this.data[opener] & KIND_MASK;
+
+                --this.openCounts[openerKind];
+
+                if (openerKind == kind) {
+                    this.data[opener] |= MATCHED | OPENER;
+                    this.data[index] |= MATCHED;
+                    return true;
+                }
+            }
+        }
+
+        if (canOpen) {
+            if (this.openerCount == this.openers.length) {
+                this.openers = Arrays.copyOf(this.openers, this.openers.length * 2);
+            }
+
+            this.openers[this.openerCount++] = index;
+            ++this.openCounts[kind];
+        }
+
+        return true;
+    }
+
+    /**
+     * Records a code span which starts at the specified index.
+     *
+     * @param s       a message.
+     * @param start   the index of the span's first backtick.
+     * @param run     the amount of backticks which open the span.
+     * @param pending the start of the text which precedes the span.
+     * @return the index of the first character past the span or -1 if the span is not closed.
+     */
+    private int code(@Nonnull String s, int start, int run, int pending) {
+        if (run > 3) {
+            return -1;
+        }
+
+        // once a search for a closing run has failed, all searches which start later will fail as
+        // well (which keeps inputs consisting of unmatched backticks linear)
+        final int contentStart = start + run;
+
+        if (contentStart >= this.codeSearchFailed[run]) {
+            return -1;
+        }
+
+        int close = contentStart;
+
+        while (true) {
+            close = s.indexOf('`', close);
+
+            if (close == -1) {
+                this.codeSearchFailed[run] = contentStart;
+                return -1;
+            }
+
+            int closeRun = runLength(s, close, '`');
+
+            if (closeRun == run) {
+                break;
+            }
+
+            close += closeRun;
+        }
+
+        int from = contentStart;
+        int to = close;
+
+        if (run == 3) {
+            // code blocks may name their language on the opening line
+            int tag = from;
+
+            while (tag < to && isLanguageTag(s.charAt(tag))) {
+                ++tag;
+            }
+
+            if (tag < to && s.charAt(tag) == '\n') {
+                from = tag + 1;
+            }
+
+            if (to > from && s.charAt(to - 1) == '\n') {
+                --to;
+            }
+        }
+
+        this.add(TEXT, pending, start, 0);
+        this.add(CODE, from, to, 0);
+        return close + run;
+    }
+
+    /**
+     * Turns the recorded tokens into components.
+     *
+     * @param s      a message.
+     * @param parent a parent component.
+     */
+    private void build(@Nonnull String s, @Nonnull ITextComponent parent) {
+        int style = 0;
+        int bufferStyle = 0;
+
+        for (int i = 0; i < this.size; ++i) {
+            final int kind = this.kinds[i];
+            final int start = this.starts[i];
+            final int end = this.ends[i];
+            final int data = this.data[i];
+
+            if (kind == DELIMITER && (data & MATCHED) != 0) {
+                this.activeCounts[data & KIND_MASK] += ((data & OPENER) != 0 ? 1 : -1);
+                style = 0;
+
+                for (int j = 0; j < STYLES.length; ++j) {
+                    if (this.activeCounts[j] != 0) {
+                        style |= STYLES[j];
+                    }
+                }
+
+                continue;
+            }
+
+            if (kind == TEXT || kind == DELIMITER || kind == EMOJI) {
+                if (style != bufferStyle) {
+                    this.flush(parent, bufferStyle);
+                    bufferStyle = style;
+                }
+
+                if (kind == EMOJI) {
+                    this.text.append(':').append(Emoji.getShortcode(data)).append(':');
+                } else {
+                    this.text.append(s, start, end);
+                }
+
+                continue;
+            }
+
+            this.flush(parent, bufferStyle);
+
+            TextComponentString component = new TextComponentString(s.substring(start, end));
+            Style componentStyle = component.getStyle();
+
+            if (kind == CODE) {
+                componentStyle.setColor(TextFormatting.GRAY);
+            } else {
+                applyStyle(componentStyle, style);
+                componentStyle.setColor(TextFormatting.BLUE);
+                componentStyle.setUnderlined(true);
+                componentStyle.setClickEvent(new ClickEvent(ClickEvent.Action.OPEN_URL, component.getText()));
+            }
+
+            parent.appendSibling(component);
+        }
+
+        this.flush(parent, bufferStyle);
+    }
+
+    /**
+     * Appends the buffered text (if any) to the specified parent.
+     *
+     * @param parent a parent component.
+     * @param style  the style flags of the buffered text.
+     */
+    private void flush(@Nonnull ITextComponent parent, int style) {
+        if (this.text.length() == 0) {
+            return;
+        }
+
+        TextComponentString component = new TextComponentString(this.text.toString());
+
+        if (style != 0) {
+            applyStyle(component.getStyle(), style);
+        }
+
+        parent.appendSibling(component);
+        this.text.setLength(0);
+    }
+
+    /**
+     * Records a token.
+     *
+     * @param kind  a token kind.
+     * @param start the index of the token's first character.
+     * @param end   the index past the token's last character.
+     * @param data  additional token data (such as a delimiter's kind).
+     * @return the token index or -1 if the token is empty and has been skipped.
+     */
+    private int add(int kind, int start, int end, int data) {
+        if (start == end && kind == TEXT) {
+            return -1;
+        }
+
+        if (this.size == this.kinds.length) {
+            int capacity = this.size * 2;
+
+            this.kinds = Arrays.copyOf(this.kinds, capacity);
+            this.starts = Arrays.copyOf(this.starts, capacity);
+            this.ends = Arrays.copyOf(this.ends, capacity);
+            this.data = Arrays.copyOf(this.data, capacity);
+        }
+
+        this.kinds[this.size] = kind;
+        this.starts[this.size] = start;
+        this.ends[this.size] = end;
+        this.data[this.size] = data;
+        return this.size++;
+    }
+
+    /**
+     * Resets the translator state in preparation for the next message.
+     */
+    private void reset() {
+        this.size = 0;
+        this.openerCount = 0;
+        this.text.setLength(0);
+        Arrays.fill(this.openCounts, 0);
+        Arrays.fill(this.activeCounts, 0);
+    }
+
+    /**
+     * Applies a set of style flags to a style.
+     *
+     * @param style a style.
+     * @param flags a set of flags.
+     */
+    private static void applyStyle(@Nonnull Style style, int flags) {
+        if ((flags & BOLD) != 0) {
+            style.setBold(true);
+        }
+
+        if ((flags & ITALIC) != 0) {
+            style.setItalic(true);
+        }
+
+        if ((flags & UNDERLINE) != 0) {
+            style.setUnderlined(true);
+        }
+
+        if ((flags & STRIKETHROUGH) != 0) {
+            style.setStrikethrough(true);
+        }
+    }
+
+    /**
+     * Locates the end of a link which starts at the specified index.
+     *
+     * Trailing punctuation (as well as closing parentheses without a partner within the link) is
+     * considered part of the surrounding sentence.
+     *
+     * @param s     a message.
+     * @param start the index of the link's first character.
+     * @return the index past the link's last character or -1 if there is no link at the index.
+     */
+    private static int linkEnd(@Nonnull String s, int start) {
+        int scheme;
+
+        if (s.startsWith("https://", start)) {
+            scheme = start + 8;
+        } else if (s.startsWith("http://", start)) {
+            scheme = start + 7;
+        } else {
+            return -1;
+        }
+
+        final int length = s.length();
+        int end = scheme;
+        int parentheses = 0;
+
+        while (end < length) {
+            char c = s.charAt(end);
+
+            if (Character.isWhitespace(c) || c == '<' || c == '>') {
+                break;
+            }
+
+            if (c == '(') {
+                ++parentheses;
+            } else if (c == ')') {
+                --parentheses;
+            }
+
+            ++end;
+        }
+
+        while (end > scheme) {
+            char c = s.charAt(end - 1);
+
+            if (c == ')' && parentheses < 0) {
+                ++parentheses;
+            } else if (".,:;!?'\"*_~".indexOf(c) == -1) {
+                break;
+            }
+
+            --end;
+        }
+
+        return (end == scheme ? -1 : end);
+    }
+
+    /**
+     * Counts the consecutive occurrences of a character.
+     *
+     * @param s     a message.
+     * @param start the index of the first occurrence.
+     * @param c     a character.
+     * @return the amount of occurrences.
+     */
+    private static int runLength(@Nonnull String s, int start, char c) {
+        int end = start + 1;
+
+        while (end < s.length() && s.charAt(end) == c) {
+            ++end;
+        }
+
+        return end - start;
+    }
+
+    /**
+     * Checks whether a character may be escaped with a backslash.
+     *
+     * @param c a character.
+     * @return true if escapable, false otherwise.
+     */
+    private static boolean isEscapable(char c) {
+        return c == '\\' || c == '*' || c == '_' || c == '~' || c == '`' || c == '<';
+    }
+
+    /**
+     * Checks whether a character may be part of a code block's language tag.
+     *
+     * @param c a character.
+     * @return true if permitted, false otherwise.
+     */
+    private static boolean isLanguageTag(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '+' || c == '-' || c == '#';
+    }
+}
@@ -0,0 +1,291 @@
+/*
+ * Copyright 2016 Johannes Donath <johannesd@torchmind.com>
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rocks.spud.mc.discord;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Provides a case insensitive index of guild member names and nicknames which resolves
+ * {@code @name} tokens into Discord mentions.
+ *
+ * Names are kept within a trie so that resolving a token takes time proportional to its length
+ * rather than the size of the guild. The index is populated once the connection has been
+ * established and kept up to date with member events from there on.
+ *
+ * @author <a href="mailto:johannesd@torchmind.com">Johannes Donath</a>
+ */
+final class MentionIndex {
+    private final Node root = new Node();
+    private final Map<String, String[]> names = new HashMap<>();
+
+    /**
+     * Adds a member to the index or replaces its previously indexed names.
+     *
+     * @param id       a member identifier.
+     * @param username a username.
+     * @param nickname a guild specific nickname or null if none has been set.
+     */
+    synchronized void put(@Nonnull String id, @Nonnull String username, @Nullable String nickname) {
+        this.remove(id);
+
+        String[] names = (nickname == null || nickname.equalsIgnoreCase(username) ? new String[]{username} : new String[]{username, nickname});
+        this.names.put(id, names);
+
+        for (String name : names) {
+            this.root.insert(name, 0, id);
+        }
+    }
+
+    /**
+     * Removes a member from the index.
+     *
+     * @param id a member identifier.
+     */
+    synchronized void remove(@Nonnull String id) {
+        String[] names = this.names.remove(id);
+
+        if (names == null) {
+            return;
+        }
+
+        for (String name : names) {
+            this.root.delete(name, 0, id);
+        }
+    }
+
+    /**
+     * Checks whether a member is part of the index.
+     *
+     * @param id a member identifier.
+     * @return true if indexed, false otherwise.
+     */
+    synchronized boolean contains(@Nonnull String id) {
+        return this.names.containsKey(id);
+    }
+
+    /**
+     * Removes all members from the index.
+     */
+    synchronized void clear() {
+        this.names.clear();
+        this.root.clear();
+    }
+
+    /**
+     * Retrieves the amount of indexed members.
+     *
+     * @return an amount of members.
+     */
+    synchronized int size() {
+        return this.names.size();
+    }
+
+    /**
+     * Replaces all {@code @name} tokens which unambiguously identify a member with a mention of
+     * said member.
+     *
+     * The longest matching name wins (which permits names that contain spaces) as long as it is
+     * followed by the end of the message, whitespace or punctuation. Tokens which do not match a
+     * name or match the names of multiple members are left untouched.
+     *
+     * @param message a message.
+     * @return a message.
+     */
+    @Nonnull
+    synchronized String resolve(@Nonnull String message) {
+        StringBuilder builder = null;
+        int copied = 0;
+        int offset = message.indexOf('@');
+
+        while (offset != -1) {
+            int end = -1;
+            String member = null;
+
+            if (offset == 0 || Character.isWhitespace(message.charAt(offset - 1))) {
+                Node node = this.root;
+
+                for (int i = offset + 1; i < message.length(); ++i) {
+                    char c = message.charAt(i);
+
+                    // names may contain characters which have been escaped (see FormattingTranslator)
+                    if (c == '\\' && i + 1 < message.length()) {
+                        c = message.charAt(++i);
+                    }
+
+                    node = node.child(Character.toLowerCase(c));
+
+                    if (node == null) {
+                        break;
+                    }
+
+                    if (node.isUnique() && (i + 1 == message.length() || !Character.isLetterOrDigit(message.charAt(i + 1)))) {
+                        end = i + 1;
+                        member = node.members.get(0);
+                    }
+                }
+            }
+
+            if (member == null) {
+                offset = message.indexOf('@', offset + 1);
+                continue;
+            }
+
+            if (builder == null) {
+                builder = new StringBuilder(message.length() + 16);
+            }
+
+            builder.append(message, copied, offset).append("<@").append(member).append('>');
+            copied = end;
+            offset = message.indexOf('@', end);
+        }
+
+        if (builder == null) {
+            return message;
+        }
+
+        return builder.append(message, copied, message.length()).toString();
+    }
+
+    /**
+     * Represents a single node within the name trie.
+     *
+     * Children are kept in a sorted array since most nodes only have a handful of them.
+     */
+    private static final class Node {
+        private static final char[] NO_KEYS = new char[0];
+        private static final Node[] NO_CHILDREN = new Node[0];
+
+        private char[] keys = NO_KEYS;
+        private Node[] children = NO_CHILDREN;
+        private int size;
+        private List<String> members;
+
+        /**
+         * Retrieves the child node for a certain (lower case) character.
+         *
+         * @param key a character.
+         * @return a node or null if no such child exists.
+         */
+        @Nullable
+        Node child(char key) {
+            int index = Arrays.binarySearch(this.keys, 0, this.size, key);
+            return (index < 0 ? null : this.children[index]);
+        }
+
+        /**
+         * Checks whether this node marks the end of the name of exactly one member.
+         *
+         * @return true if unique, false otherwise.
+         */
+        boolean isUnique() {
+            return this.members != null && this.members.size() == 1;
+        }
+
+        /**
+         * Adds a member to the node which marks the end of the supplied name and creates all
+         * missing nodes along the way.
+         *
+         * @param name   a name.
+         * @param offset the offset of the character this node represents.
+         * @param member a member identifier.
+         */
+        void insert(@Nonnull String name, int offset, @Nonnull String member) {
+            if (offset == name.length()) {
+                if (this.members == null) {
+                    this.members = new ArrayList<>(1);
+                }
+
+                if (!this.members.contains(member)) {
+                    this.members.add(member);
+                }
+
+                return;
+            }
+
+            char key = Character.toLowerCase(name.charAt(offset));
+            int index = Arrays.binarySearch(this.keys, 0, this.size, key);
+
+            if (index < 0) {
+                index = -(index + 1);
+
+                if (this.size == this.keys.length) {
+                    int capacity = Math.max(2, this.size * 2);
+                    this.keys = Arrays.copyOf(this.keys, capacity);
+                    this.children = Arrays.copyOf(this.children, capacity);
+                }
+
+                System.arraycopy(this.keys, index, this.keys, index + 1, this.size - index);
+                System.arraycopy(this.children, index, this.children, index + 1, this.size - index);
+                this.keys[index] = key;
+                this.children[index] = new Node();
+                ++this.size;
+            }
+
+            this.children[index].insert(name, offset + 1, member);
+        }
+
+        /**
+         * Removes a member from the node which marks the end of the supplied name and prunes all
+         * nodes which are no longer needed along the way.
+         *
+         * @param name   a name.
+         * @param offset the offset of the character this node represents.
+         * @param member a member identifier.
+         * @return true if this node has become empty, false otherwise.
+         */
+        boolean delete(@Nonnull String name, int offset, @Nonnull String member) {
+            if (offset == name.length()) {
+                if (this.members != null) {
+                    this.members.remove(member);
+
+                    if (this.members.isEmpty()) {
+                        this.members = null;
+                    }
+                }
+
+                return this.members == null && this.size == 0;
+            }
+
+            int index = Arrays.binarySearch(this.keys, 0, this.size, Character.toLowerCase(name.charAt(offset)));
+
+            if (index >= 0 && this.children[index].delete(name, offset + 1, member)) {
+                System.arraycopy(this.keys, index + 1, this.keys, index, this.size - index - 1);
+                System.arraycopy(this.children, index + 1, this.children, index, this.size - index - 1);
+                this.children[--this.size] = null;
+            }
+
+            return this.members == null && this.size == 0;
+        }
+
+        /**
+         * Removes all children and members from this node.
+         */
+        void clear() {
+            this.keys = NO_KEYS;
+            this.children = NO_CHILDREN;
+            this.size = 0;
+            this.members = null;
+        }
+    }
+}
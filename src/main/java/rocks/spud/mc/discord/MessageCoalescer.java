@@ -0,0 +1,185 @@
+/*
+ * Copyright 2016 Johannes Donath <johannesd@torchmind.com>
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rocks.spud.mc.discord;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Merges consecutive lines which arrive within a configurable time window into a single Discord
+ * message while respecting Discord's message length limit.
+ *
+ * Lines are always emitted in the order they have been appended in. A window begins with the first
+ * line appended to an empty buffer and is flushed early as soon as the next line would exceed the
+ * length limit. Each message keeps track of the events it has been assembled from.
+ *
+ * <strong>Note:</strong> Instances of this class are not thread safe and are expected to be used
+ * by the sender thread only.
+ *
+ * @author <a href="mailto:johannesd@torchmind.com">Johannes Donath</a>
+ */
+final class MessageCoalescer {
+
+    /**
+     * Defines the maximum amount of characters Discord accepts within a single message.
+     */
+    static final int MESSAGE_LIMIT = 2000;
+
+    private final long window;
+    private final StringBuilder buffer = new StringBuilder(MESSAGE_LIMIT);
+    private OutboundEvent[] events = new OutboundEvent[16];
+    private int count;
+    private long deadline;
+
+    /**
+     * Constructs a new coalescer.
+     *
+     * @param window a window (in milliseconds) or zero to disable coalescing.
+     */
+    MessageCoalescer(long window) {
+        this.window = TimeUnit.MILLISECONDS.toNanos(window);
+    }
+
+    /**
+     * Appends a line to the current window.
+     *
+     * @param line  a line.
+     * @param event the event the line has been rendered from.
+     * @param now   the current time (as reported by {@link System#nanoTime()}).
+     * @param sink  a sink which receives completed messages.
+     */
+    void append(@Nonnull String line, @Nonnull OutboundEvent event, long now, @Nonnull Consumer<OutboundMessage> sink) {
+        if (this.buffer.length() != 0 && this.buffer.length() + 1 + line.length() > MESSAGE_LIMIT) {
+            this.flush(sink);
+        }
+
+        if (line.length() > MESSAGE_LIMIT) {
+            int offset = 0;
+
+            while (line.length() - offset > MESSAGE_LIMIT) {
+                int end = splitPoint(line, offset);
+                sink.accept(new OutboundMessage(line.substring(offset, end)));
+                offset = end;
+            }
+
+            line = line.substring(offset);
+        }
+
+        if (this.buffer.length() == 0) {
+            this.deadline = now + this.window;
+        } else {
+            this.buffer.append('\n');
+        }
+
+        this.buffer.append(line);
+
+        if (this.count == this.events.length) {
+            this.events = Arrays.copyOf(this.events, this.count * 2);
+        }
+
+        this.events[this.count++] = event;
+
+        if (this.window == 0 || this.buffer.length() == MESSAGE_LIMIT) {
+            this.flush(sink);
+        }
+    }
+
+    /**
+     * Flushes the current window if it has expired.
+     *
+     * @param now  the current time (as reported by {@link System#nanoTime()}).
+     * @param sink a sink which receives completed messages.
+     * @return the time at which the next window expires or {@link Long#MAX_VALUE} if there is no
+     * pending window.
+     */
+    long advance(long now, @Nonnull Consumer<OutboundMessage> sink) {
+        if (this.buffer.length() != 0 && this.deadline - now <= 0) {
+            this.flush(sink);
+        }
+
+        return this.buffer.length() == 0 ? Long.MAX_VALUE : this.deadline;
+    }
+
+    /**
+     * Flushes the current window regardless of its expiration.
+     *
+     * @param sink a sink which receives completed messages.
+     */
+    void flush(@Nonnull Consumer<OutboundMessage> sink) {
+        if (this.buffer.length() != 0) {
+            sink.accept(new OutboundMessage(this.buffer.toString(), Arrays.copyOf(this.events, this.count)));
+            Arrays.fill(this.events, 0, this.count, null);
+            this.buffer.setLength(0);
+            this.count = 0;
+        }
+    }
+
+    /**
+     * Retrieves the time at which the current window expires.
+     *
+     * @return a time (as reported by {@link System#nanoTime()}) or {@link Long#MAX_VALUE} if there
+     * is no pending window.
+     */
+    long getDeadline() {
+        return this.buffer.length() == 0 ? Long.MAX_VALUE : this.deadline;
+    }
+
+    /**
+     * Checks whether this coalescer currently holds any lines.
+     *
+     * @return true if empty, false otherwise.
+     */
+    boolean isEmpty() {
+        return this.buffer.length() == 0;
+    }
+
+    /**
+     * Retrieves the amount of characters which are currently buffered.
+     *
+     * @return an amount of characters.
+     */
+    int length() {
+        return this.buffer.length();
+    }
+
+    /**
+     * Selects a position at which an oversized line is split, preferring the last whitespace within
+     * the permitted range and never splitting surrogate pairs.
+     *
+     * @param line   a line.
+     * @param offset the offset of the current chunk.
+     * @return the (exclusive) end of the current chunk.
+     */
+    static int splitPoint(@Nonnull CharSequence line, int offset) {
+        int end = offset + MESSAGE_LIMIT;
+
+        for (int i = end; i > offset + MESSAGE_LIMIT / 2; --i) {
+            if (Character.isWhitespace(line.charAt(i - 1))) {
+                return i;
+            }
+        }
+
+        if (Character.isHighSurrogate(line.charAt(end - 1))) {
+            --end;
+        }
+
+        return end;
+    }
+}
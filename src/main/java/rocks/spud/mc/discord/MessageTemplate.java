@@ -0,0 +1,294 @@
+/*
+ * Copyright 2016 Johannes Donath <johannesd@torchmind.com>
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rocks.spud.mc.discord;
+
+import net.minecraft.util.text.ITextComponent;
+import net.minecraft.util.text.TextComponentString;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.MissingFormatArgumentException;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Provides a pre-compiled representation of a message pattern.
+ *
+ * Patterns use the syntax of {@link String#format(String, Object...)}. The subset which is used by
+ * message patterns (e.g. {@code %s}, {@code %1$s}, {@code %%} and {@code %n}) is compiled into a list
+ * of literal and argument segments which are rendered without re-parsing the pattern. Patterns
+ * which rely on any other feature of the format syntax (such as flags, widths or other conversions)
+ * are passed to {@link String#format(String, Object...)} instead in order to retain the exact same
+ * output.
+ *
+ * @author <a href="mailto:johannesd@torchmind.com">Johannes Donath</a>
+ */
+final class MessageTemplate {
+    private static final ThreadLocal<StringBuilder> buffer = ThreadLocal.withInitial(() -> new StringBuilder(256));
+
+    private final String pattern;
+    private final String[] literals;
+    private final int[] arguments;
+    private final String[] specifiers;
+
+    private MessageTemplate(@Nonnull String pattern, @Nullable String[] literals, @Nullable int[] arguments, @Nullable String[] specifiers) {
+        this.pattern = pattern;
+        this.literals = literals;
+        this.arguments = arguments;
+        this.specifiers = specifiers;
+    }
+
+    /**
+     * Compiles a pattern.
+     *
+     * @param pattern a pattern.
+     * @return a template.
+     */
+    @Nonnull
+    static MessageTemplate compile(@Nonnull String pattern) {
+        final List<String> literals = new ArrayList<>();
+        final List<Integer> arguments = new ArrayList<>();
+        final List<String> specifiers = new ArrayList<>();
+        final StringBuilder literal = new StringBuilder();
+        final int length = pattern.length();
+        int ordinaryIndex = 0;
+
+        for (int i = 0; i < length; ++i) {
+            char c = pattern.charAt(i);
+
+            if (c != '%') {
+                literal.append(c);
+                continue;
+            }
+
+            int start = i++;
+            int index = -1;
+            int digitEnd = i;
+
+            while (digitEnd < length && digitEnd - i < 9 && pattern.charAt(digitEnd) >= '0' && pattern.charAt(digitEnd) <= '9') {
+                ++digitEnd;
+            }
+
+            if (digitEnd != i && digitEnd < length && pattern.charAt(digitEnd) == '$') {
+                index = Integer.parseInt(pattern.substring(i, digitEnd)) - 1;
+                i = digitEnd + 1;
+
+                if (index < 0) {
+                    return new MessageTemplate(pattern, null, null, null);
+                }
+            }
+
+            if (i >= length) {
+                return new MessageTemplate(pattern, null, null, null);
+            }
+
+            char conversion = pattern.charAt(i);
+
+            if (index == -1 && conversion == '%') {
+                literal.append('%');
+            } else if (index == -1 && conversion == 'n') {
+                literal.append(System.lineSeparator());
+            } else if (conversion == 's') {
+                literals.add(literal.toString());
+                arguments.add(index == -1 ? ordinaryIndex++ : index);
+                specifiers.add(pattern.substring(start, i + 1));
+                literal.setLength(0);
+            } else {
+                // flags, widths, precisions and all other conversions are left to the formatter
+                return new MessageTemplate(pattern, null, null, null);
+            }
+        }
+
+        literals.add(literal.toString());
+
+        return new MessageTemplate(
+                pattern,
+                literals.toArray(new String[literals.size()]),
+                arguments.stream().mapToInt(Integer::intValue).toArray(),
+                specifiers.toArray(new String[specifiers.size()])
+        );
+    }
+
+    /**
+     * Retrieves the pattern this template has been compiled from.
+     *
+     * @return a pattern.
+     */
+    @Nonnull
+    String getPattern() {
+        return this.pattern;
+    }
+
+    /**
+     * Renders this template with a single argument.
+     *
+     * @param first the first argument.
+     * @return the rendered message.
+     *
+     * @throws java.util.IllegalFormatException when the pattern references missing arguments.
+     */
+    @Nonnull
+    String render(@Nullable String first) {
+        if (this.literals == null) {
+            return String.format(this.pattern, first);
+        }
+
+        return this.appendTo(buffer(), 1, first, null, null).toString();
+    }
+
+    /**
+     * Renders this template with two arguments.
+     *
+     * @param first  the first argument.
+     * @param second the second argument.
+     * @return the rendered message.
+     *
+     * @throws java.util.IllegalFormatException when the pattern references missing arguments.
+     */
+    @Nonnull
+    String render(@Nullable String first, @Nullable String second) {
+        if (this.literals == null) {
+            return String.format(this.pattern, first, second);
+        }
+
+        return this.appendTo(buffer(), 2, first, second, null).toString();
+    }
+
+    /**
+     * Renders this template with three arguments.
+     *
+     * @param first  the first argument.
+     * @param second the second argument.
+     * @param third  the third argument.
+     * @return the rendered message.
+     *
+     * @throws java.util.IllegalFormatException when the pattern references missing arguments.
+     */
+    @Nonnull
+    String render(@Nullable String first, @Nullable String second, @Nullable String third) {
+        if (this.literals == null) {
+            return String.format(this.pattern, first, second, third);
+        }
+
+        return this.appendTo(buffer(), 3, first, second, third).toString();
+    }
+
+    /**
+     * Renders this template with two arguments into a text component while translating the
+     * Discord markdown within the second argument (see {@link MarkdownTranslator}).
+     *
+     * Patterns which are passed to {@link String#format(String, Object...)} are rendered into a
+     * single unformatted component instead.
+     *
+     * @param first  the first argument.
+     * @param second the second argument.
+     * @return the rendered message.
+     *
+     * @throws java.util.IllegalFormatException when the pattern references missing arguments.
+     */
+    @Nonnull
+    ITextComponent renderMarkdown(@Nullable String first, @Nonnull String second) {
+        if (this.literals == null) {
+            return new TextComponentString(String.format(this.pattern, first, second));
+        }
+
+        final TextComponentString component = new TextComponentString("");
+        final StringBuilder out = buffer();
+
+        for (int i = 0; i < this.arguments.length; ++i) {
+            out.append(this.literals[i]);
+
+            switch (this.arguments[i]) {
+                case 0:
+                    out.append(first);
+                    break;
+                case 1:
+                    appendText(component, out);
+                    MarkdownTranslator.appendTo(component, second);
+                    break;
+                default:
+                    throw new MissingFormatArgumentException(this.specifiers[i]);
+            }
+        }
+
+        out.append(this.literals[this.arguments.length]);
+        appendText(component, out);
+        return component;
+    }
+
+    /**
+     * Appends the rendered template to the supplied buffer.
+     *
+     * @param out    a buffer.
+     * @param count  the amount of arguments which have been passed.
+     * @param first  the first argument.
+     * @param second the second argument.
+     * @param third  the third argument.
+     * @return a reference to the supplied buffer.
+     */
+    @Nonnull
+    private StringBuilder appendTo(@Nonnull StringBuilder out, int count, @Nullable String first, @Nullable String second, @Nullable String third) {
+        for (int i = 0; i < this.arguments.length; ++i) {
+            out.append(this.literals[i]);
+
+            switch (this.arguments[i] < count ? this.arguments[i] : -1) {
+                case 0:
+                    out.append(first);
+                    break;
+                case 1:
+                    out.append(second);
+                    break;
+                case 2:
+                    out.append(third);
+                    break;
+                default:
+                    throw new MissingFormatArgumentException(this.specifiers[i]);
+            }
+        }
+
+        return out.append(this.literals[this.arguments.length]);
+    }
+
+    /**
+     * Appends the contents of a buffer (if any) to a component as unformatted text and clears the
+     * buffer.
+     *
+     * @param component a component.
+     * @param out       a buffer.
+     */
+    private static void appendText(@Nonnull ITextComponent component, @Nonnull StringBuilder out) {
+        if (out.length() == 0) {
+            return;
+        }
+
+        component.appendSibling(new TextComponentString(out.toString()));
+        out.setLength(0);
+    }
+
+    /**
+     * Retrieves the calling thread's render buffer.
+     *
+     * @return an empty buffer.
+     */
+    @Nonnull
+    private static StringBuilder buffer() {
+        StringBuilder builder = buffer.get();
+        builder.setLength(0);
+        return builder;
+    }
+}
@@ -0,0 +1,369 @@
+/*
+ * Copyright 2016 Johannes Donath <johannesd@torchmind.com>
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rocks.spud.mc.discord;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Holds the events which occur while Discord is unreachable.
+ *
+ * The most recent events are kept within a fixed size ring while older events spill over into a
+ * compact file on disk (or are discarded if the disk cannot be written to). In addition, a digest of all events (the amount of events per type as well
+ * as a few names each) is maintained so that the backlog may be announced as a single summary
+ * rather than a flood of individual messages once the connection has been re-established.
+ *
+ * <strong>Note:</strong> Instances of this class are not thread safe and are expected to be used
+ * by the sender thread only.
+ *
+ * @author <a href="mailto:johannesd@torchmind.com">Johannes Donath</a>
+ */
+final class OutageBuffer {
+    private static final Logger logger = LogManager.getLogger(OutageBuffer.class);
+    private static final EventType[] TYPES = EventType.values();
+    private static final int NAMES_PER_TYPE = 5;
+
+    private final OutboundEvent[] ring;
+    private final File spillDirectory;
+    private final Consumer<OutboundEvent> discarded;
+    private int head;
+    private int size;
+
+    private DataOutputStream spill;
+    private File spillTarget;
+    private int spilled;
+    private boolean spillFailed;
+
+    private final long[] counts = new long[TYPES.length];
+    private final String[][] names = new String[TYPES.length][NAMES_PER_TYPE];
+
+    /**
+     * Constructs a new buffer.
+     *
+     * @param capacity       the amount of events to keep in memory.
+     * @param spillDirectory a directory which receives a file with the events which do not fit
+     *                       into memory or null to use the temporary directory instead.
+     * @param discarded      a consumer which is notified of events that could neither be kept in
+     *                       memory nor spilled to disk.
+     */
+    OutageBuffer(int capacity, @Nullable File spillDirectory, @Nonnull Consumer<OutboundEvent> discarded) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+
+        this.ring = new OutboundEvent[capacity];
+        this.spillDirectory = spillDirectory;
+        this.discarded = discarded;
+    }
+
+    /**
+     * Adds an event to the backlog.
+     *
+     * @param event an event.
+     */
+    void add(@Nonnull OutboundEvent event) {
+        this.record(event);
+
+        if (this.size == this.ring.length) {
+            this.spill(this.ring[this.head]);
+            this.ring[this.head] = event;
+            this.head = (this.head + 1) % this.ring.length;
+            return;
+        }
+
+        this.ring[(this.head + this.size++) % this.ring.length] = event;
+    }
+
+    /**
+     * Checks whether the backlog is empty.
+     *
+     * @return true if empty, false otherwise.
+     */
+    boolean isEmpty() {
+        return this.size == 0 && this.spilled == 0;
+    }
+
+    /**
+     * Retrieves the total amount of events within the backlog.
+     *
+     * @return an amount of events.
+     */
+    long getCount() {
+        long count = 0;
+
+        for (long c : this.counts) {
+            count += c;
+        }
+
+        return count;
+    }
+
+    /**
+     * Retrieves the amount of events of a certain type within the backlog.
+     *
+     * @param type an event type.
+     * @return an amount of events.
+     */
+    long getCount(@Nonnull EventType type) {
+        return this.counts[type.ordinal()];
+    }
+
+    /**
+     * Builds a single line which summarizes the backlog.
+     *
+     * @param since the time at which the outage began (in milliseconds since the epoch).
+     * @param now   the current time (in milliseconds since the epoch).
+     * @return a summary.
+     */
+    @Nonnull
+    String summarize(long since, long now) {
+        StringBuilder builder = new StringBuilder(256)
+                .append(":warning: Discord was unreachable for ").append(formatDuration(now - since)).append(". Missed in the meantime:");
+        boolean first = true;
+
+        for (EventType type : TYPES) {
+            long count = this.counts[type.ordinal()];
+
+            if (count == 0) {
+                continue;
+            }
+
+            builder.append(first ? " " : ", ").append(count).append(' ').append(describe(type, count));
+            first = false;
+
+            String[] names = this.names[type.ordinal()];
+
+            if (type == EventType.CHAT || type == EventType.STATUS || names[0] == null) {
+                continue;
+            }
+
+            builder.append(" (");
+            int listed = 0;
+
+            for (String name : names) {
+                if (name == null) {
+                    break;
+                }
+
+                builder.append(listed++ == 0 ? "" : ", ").append(name);
+            }
+
+            if (count > listed) {
+                builder.append(" and ").append(count - listed).append(" more");
+            }
+
+            builder.append(')');
+        }
+
+        return builder.append('.').toString();
+    }
+
+    /**
+     * Passes the entire backlog (oldest first) to the supplied consumer and resets the buffer.
+     *
+     * Events which have been spilled to disk are read back one by one so that the backlog never
+     * needs to be held in memory as a whole.
+     *
+     * @param consumer a consumer.
+     */
+    void drain(@Nonnull Consumer<OutboundEvent> consumer) {
+        if (this.spill != null) {
+            try {
+                this.spill.close();
+            } catch (IOException ex) {
+                logger.warn("Could not close outage spill file: " + ex.getMessage(), ex);
+            }
+
+            this.spill = null;
+
+            try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(this.spillTarget)))) {
+                for (int i = 0; i < this.spilled; ++i) {
+                    consumer.accept(read(input));
+                }
+            } catch (EOFException ex) {
+                logger.warn("Outage spill file has been truncated: Some events could not be recovered");
+            } catch (IOException ex) {
+                logger.error("Could not read outage spill file: " + ex.getMessage(), ex);
+            }
+
+            if (!this.spillTarget.delete()) {
+                logger.warn("Could not delete outage spill file: " + this.spillTarget);
+            }
+
+            this.spillTarget = null;
+        }
+
+        for (int i = 0; i < this.size; ++i) {
+            int index = (this.head + i) % this.ring.length;
+
+            consumer.accept(this.ring[index]);
+            this.ring[index] = null;
+        }
+
+        this.head = 0;
+        this.size = 0;
+        this.spilled = 0;
+        this.spillFailed = false;
+        Arrays.fill(this.counts, 0);
+
+        for (String[] names : this.names) {
+            Arrays.fill(names, null);
+        }
+    }
+
+    /**
+     * Updates the digest with a new event.
+     *
+     * @param event an event.
+     */
+    private void record(@Nonnull OutboundEvent event) {
+        ++this.counts[event.getType().ordinal()];
+
+        String subject = event.getSubject();
+
+        if (subject == null) {
+            return;
+        }
+
+        String[] names = this.names[event.getType().ordinal()];
+
+        for (int i = 0; i < names.length; ++i) {
+            if (names[i] == null) {
+                names[i] = subject;
+                return;
+            }
+
+            if (names[i].equals(subject)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Writes an event which has been evicted from the ring to disk (or discards it if the disk
+     * cannot be written to).
+     *
+     * @param event an event.
+     */
+    private void spill(@Nonnull OutboundEvent event) {
+        if (this.spillFailed) {
+            this.discarded.accept(event);
+            return;
+        }
+
+        try {
+            if (this.spill == null) {
+                if (this.spillTarget == null) {
+                    // every buffer uses a file of its own since a replaced bridge may still be
+                    // shutting down while its successor spills into the same directory
+                    this.spillTarget = File.createTempFile("discord-outage-", ".spill", this.spillDirectory);
+                }
+
+                this.spill = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(this.spillTarget)));
+            }
+
+            write(this.spill, event);
+            ++this.spilled;
+        } catch (IOException ex) {
+            // the digest still accounts for all events which could not be spilled
+            this.spillFailed = true;
+            logger.error("Could not spill outage backlog to disk: Older events will only be summarized", ex);
+            this.discarded.accept(event);
+        }
+    }
+
+    private static void write(@Nonnull DataOutputStream output, @Nonnull OutboundEvent event) throws IOException {
+        output.writeByte(event.getType().ordinal());
+        output.writeLong(event.getTimestamp());
+        output.writeLong(event.getPosition());
+        writeString(output, event.getSubject());
+        writeString(output, event.getDetail());
+    }
+
+    @Nonnull
+    private static OutboundEvent read(@Nonnull DataInputStream input) throws IOException {
+        EventType type = TYPES[input.readUnsignedByte()];
+        long timestamp = input.readLong();
+        long position = input.readLong();
+        String subject = readString(input);
+        String detail = readString(input);
+
+        return new OutboundEvent(type, subject, detail, timestamp, position);
+    }
+
+    private static void writeString(@Nonnull DataOutputStream output, @Nullable String value) throws IOException {
+        output.writeBoolean(value != null);
+
+        if (value != null) {
+            output.writeUTF(value);
+        }
+    }
+
+    @Nullable
+    private static String readString(@Nonnull DataInputStream input) throws IOException {
+        return (input.readBoolean() ? input.readUTF() : null);
+    }
+
+    @Nonnull
+    private static String describe(@Nonnull EventType type, long count) {
+        switch (type) {
+            case ACHIEVEMENT:
+                return (count == 1 ? "achievement" : "achievements");
+            case CONNECT:
+                return (count == 1 ? "connect" : "connects");
+            case DISCONNECT:
+                return (count == 1 ? "disconnect" : "disconnects");
+            case DEATH:
+                return (count == 1 ? "death" : "deaths");
+            case CHAT:
+                return (count == 1 ? "chat message" : "chat messages");
+            default:
+                return (count == 1 ? "status update" : "status updates");
+        }
+    }
+
+    @Nonnull
+    private static String formatDuration(long milliseconds) {
+        long minutes = TimeUnit.MILLISECONDS.toMinutes(milliseconds);
+
+        if (minutes == 0) {
+            return TimeUnit.MILLISECONDS.toSeconds(milliseconds) + "s";
+        }
+
+        if (minutes < 60) {
+            return minutes + "m";
+        }
+
+        return (minutes / 60) + "h " + (minutes % 60) + "m";
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright 2016 Johannes Donath <johannesd@torchmind.com>
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rocks.spud.mc.discord;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Provides a dedicated sender thread which drains the outbound queue and hands each event to a
+ * sink for rendering and delivery.
+ *
+ * Sinks may hold on to events in order to merge or delay them. The dispatcher will wake up in time
+ * for the deadline reported by the sink even when no further events arrive.
+ *
+ * @author <a href="mailto:johannesd@torchmind.com">Johannes Donath</a>
+ */
+final class OutboundDispatcher implements Runnable {
+    private static final Logger logger = LogManager.getLogger(OutboundDispatcher.class);
+    private static final long IDLE_TIMEOUT = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final OutboundQueue queue;
+    private final Sink sink;
+    private final Thread thread;
+    private volatile boolean running = true;
+
+    OutboundDispatcher(@Nonnull OutboundQueue queue, @Nonnull Sink sink) {
+        this.queue = queue;
+        this.sink = sink;
+
+        this.thread = new Thread(this, "Discord Sender");
+        this.thread.setDaemon(true);
+    }
+
+    /**
+     * Starts the sender thread.
+     */
+    void start() {
+        this.thread.start();
+    }
+
+    /**
+     * Stops the sender thread after all events which have been queued so far have been handled.
+     *
+     * @param timeout the maximum amount of time to wait for the queue to drain.
+     * @param unit    a time unit.
+     * @throws InterruptedException when the calling thread is interrupted while waiting.
+     */
+    void shutdown(long timeout, @Nonnull TimeUnit unit) throws InterruptedException {
+        this.running = false;
+        this.thread.join(unit.toMillis(timeout));
+
+        if (this.thread.isAlive()) {
+            this.thread.interrupt();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void run() {
+        long deadline = Long.MAX_VALUE;
+
+        try {
+            while (this.running) {
+                long timeout = IDLE_TIMEOUT;
+
+                if (deadline != Long.MAX_VALUE) {
+                    timeout = Math.max(0, Math.min(timeout, deadline - System.nanoTime()));
+                }
+
+                OutboundEvent event = this.queue.poll(timeout, TimeUnit.NANOSECONDS);
+                long now = System.nanoTime();
+
+                if (event != null) {
+                    this.handle(event, now);
+                }
+
+                deadline = this.advance(now);
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+
+        // flush whatever has been queued before the shutdown was requested
+        OutboundEvent event;
+
+        while ((event = this.queue.poll()) != null) {
+            this.handle(event, System.nanoTime());
+        }
+
+        try {
+            this.sink.flush();
+        } catch (RuntimeException ex) {
+            logger.error("Could not flush pending messages: " + ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * Passes a single event to the sink without letting failures terminate the sender thread.
+     *
+     * @param event an event.
+     * @param now   the current time (as reported by {@link System#nanoTime()}).
+     */
+    private void handle(@Nonnull OutboundEvent event, long now) {
+        try {
+            this.sink.accept(event, now);
+        } catch (RuntimeException ex) {
+            logger.error("Could not dispatch " + event.getType() + " event: " + ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * Permits the sink to process any expired work without letting failures terminate the sender
+     * thread.
+     *
+     * @param now the current time (as reported by {@link System#nanoTime()}).
+     * @return the next deadline.
+     */
+    private long advance(long now) {
+        try {
+            return this.sink.advance(now);
+        } catch (RuntimeException ex) {
+            logger.error("Could not process pending messages: " + ex.getMessage(), ex);
+            return Long.MAX_VALUE;
+        }
+    }
+
+    /**
+     * Receives events from the sender thread.
+     */
+    interface Sink {
+
+        /**
+         * Accepts a newly dequeued event.
+         *
+         * @param event an event.
+         * @param now   the current time (as reported by {@link System#nanoTime()}).
+         */
+        void accept(@Nonnull OutboundEvent event, long now);
+
+        /**
+         * Processes any work which has become due.
+         *
+         * @param now the current time (as reported by {@link System#nanoTime()}).
+         * @return the time at which the sink needs to be advanced again or {@link Long#MAX_VALUE}
+         * if there is no pending work.
+         */
+        long advance(long now);
+
+        /**
+         * Sends all pending work immediately (invoked when the dispatcher is shut down).
+         */
+        void flush();
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright 2016 Johannes Donath <johannesd@torchmind.com>
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rocks.spud.mc.discord;
+
+import java.util.BitSet;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Represents a single event which is to be forwarded to Discord.
+ *
+ * Events only carry the plain values which have been extracted from the game on the server thread
+ * so that they may safely be handed to the sender thread for rendering and dispatching.
+ *
+ * In addition, every event keeps track of its position within the outbound journal (if any) as
+ * well as the amount of channels which have yet to confirm its delivery and the channels to which
+ * its delivery has failed.
+ *
+ * @author <a href="mailto:johannesd@torchmind.com">Johannes Donath</a>
+ */
+final class OutboundEvent {
+    private static final AtomicIntegerFieldUpdater<OutboundEvent> deliveriesUpdater = AtomicIntegerFieldUpdater.newUpdater(OutboundEvent.class, "deliveries");
+
+    private final EventType type;
+    private final long timestamp;
+    private final String subject;
+    private final String detail;
+    private long position;
+    private volatile int deliveries;
+    private BitSet failedChannels;
+
+    OutboundEvent(@Nonnull EventType type, @Nullable String subject, @Nullable String detail) {
+        this(type, subject, detail, System.currentTimeMillis(), -1);
+    }
+
+    OutboundEvent(@Nonnull EventType type, @Nullable String subject, @Nullable String detail, long timestamp, long position) {
+        this.type = type;
+        this.timestamp = timestamp;
+        this.subject = subject;
+        this.detail = detail;
+        this.position = position;
+    }
+
+    /**
+     * Retrieves the event type.
+     *
+     * @return a type.
+     */
+    @Nonnull
+    EventType getType() {
+        return this.type;
+    }
+
+    /**
+     * Retrieves the time at which this event was created.
+     *
+     * @return a timestamp (in milliseconds since the epoch).
+     */
+    long getTimestamp() {
+        return this.timestamp;
+    }
+
+    /**
+     * Retrieves the event subject (typically the display name of the player in question).
+     *
+     * @return a subject or null if not applicable.
+     */
+    @Nullable
+    String getSubject() {
+        return this.subject;
+    }
+
+    /**
+     * Retrieves the event detail (such as the chat message, achievement name or death message).
+     *
+     * @return a detail or null if not applicable.
+     */
+    @Nullable
+    String getDetail() {
+        return this.detail;
+    }
+
+    /**
+     * Retrieves the position of this event within the outbound journal.
+     *
+     * @return a position or -1 if the event has not been journaled.
+     */
+    long getPosition() {
+        return this.position;
+    }
+
+    /**
+     * Sets the position of this event within the outbound journal.
+     *
+     * <strong>Note:</strong> The position needs to be set before the event is handed to the
+     * sender thread.
+     *
+     * @param position a position.
+     */
+    void setPosition(long position) {
+        this.position = position;
+    }
+
+    /**
+     * Resets the delivery count of this event before it is passed on to a set of channels.
+     *
+     * @param channels the amount of channels which are expected to confirm the delivery.
+     */
+    void expectDeliveries(int channels) {
+        this.deliveries = channels;
+    }
+
+    /**
+     * Records the outcome of a delivery to a single channel.
+     *
+     * @param channel the index of the channel in question.
+     * @param success true if the message has been accepted (or deliberately discarded), false
+     *                otherwise.
+     * @return true if this was the last pending delivery, false otherwise.
+     */
+    boolean completeDelivery(int channel, boolean success) {
+        if (!success) {
+            synchronized (this) {
+                if (this.failedChannels == null) {
+                    this.failedChannels = new BitSet();
+                }
+
+                this.failedChannels.set(channel);
+            }
+        }
+
+        return deliveriesUpdater.decrementAndGet(this) == 0;
+    }
+
+    /**
+     * Checks whether the delivery to at least one channel has failed.
+     *
+     * @return true if failed, false otherwise.
+     */
+    synchronized boolean isFailed() {
+        return this.failedChannels != null;
+    }
+
+    /**
+     * Retrieves and resets the set of channels to which the delivery of this event has failed.
+     *
+     * @return a set of channel indices or null if no delivery has failed.
+     */
+    @Nullable
+    synchronized BitSet takeFailedChannels() {
+        BitSet failedChannels = this.failedChannels;
+        this.failedChannels = null;
+        return failedChannels;
+    }
+}
@@ -0,0 +1,407 @@
+/*
+ * Copyright 2016 Johannes Donath <johannesd@torchmind.com>
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rocks.spud.mc.discord;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Provides a persistent journal of outbound events which is backed by a set of memory mapped,
+ * fixed size segment files.
+ *
+ * Events are appended before they are handed to the sender thread and acknowledged once their
+ * delivery has been confirmed (or once they have been discarded deliberately). Events which have
+ * not been acknowledged when the server stops are recovered from the journal on the next start.
+ * Segments are deleted as soon as all of their events have been acknowledged.
+ *
+ * Appends merely copy the event into the mapped segment and leave writing it back to disk to the
+ * operating system. The journal thus survives crashes of the server process but not necessarily
+ * crashes of the machine itself.
+ *
+ * Each entry is laid out as follows (the length is written last and marks the entry as complete):
+ * <pre>
+ * int    length (including this header)
+ * byte   status (0 = pending, 1 = acknowledged)
+ * byte   event type (ordinal)
+ * long   timestamp
+ * int    subject length (-1 if absent), followed by the subject encoded in UTF-8
+ * int    detail length (-1 if absent), followed by the detail encoded in UTF-8
+ * </pre>
+ *
+ * @author <a href="mailto:johannesd@torchmind.com">Johannes Donath</a>
+ */
+final class OutboundJournal implements Closeable {
+    private static final Logger logger = LogManager.getLogger(OutboundJournal.class);
+
+    /**
+     * Defines the default segment size (one mebibyte holds several thousand typical events).
+     */
+    static final int DEFAULT_SEGMENT_SIZE = 1 << 20;
+
+    private static final String EXTENSION = ".journal";
+    private static final int HEADER_LENGTH = 4 + 1 + 1 + 8;
+    private static final byte PENDING = 0;
+    private static final byte ACKNOWLEDGED = 1;
+    private static final EventType[] TYPES = EventType.values();
+
+    private final File directory;
+    private final int segmentSize;
+    private final Map<Integer, Segment> segments = new ConcurrentHashMap<>();
+    private final List<OutboundEvent> recovered = new ArrayList<>();
+    private Segment current;
+    private int nextIndex;
+    private volatile boolean closed;
+
+    /**
+     * Opens a journal and recovers all events which have not been acknowledged yet.
+     *
+     * @param directory   a directory which is exclusively used by this journal.
+     * @param segmentSize the size of a single segment (in bytes).
+     * @throws IOException when the journal cannot be accessed.
+     */
+    OutboundJournal(@Nonnull File directory, int segmentSize) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create journal directory: " + directory);
+        }
+
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+
+        File[] files = directory.listFiles((d, n) -> n.endsWith(EXTENSION));
+
+        if (files == null) {
+            throw new IOException("Cannot list journal directory: " + directory);
+        }
+
+        Arrays.sort(files);
+
+        for (File file : files) {
+            int index;
+
+            try {
+                index = Integer.parseInt(file.getName().substring(0, file.getName().length() - EXTENSION.length()), 16);
+            } catch (NumberFormatException ex) {
+                logger.warn("Ignoring unknown journal file: " + file);
+                continue;
+            }
+
+            this.recover(index, file);
+            this.nextIndex = Math.max(this.nextIndex, index + 1);
+        }
+    }
+
+    /**
+     * Retrieves the directory which holds the journal's segments.
+     *
+     * @return a directory.
+     */
+    @Nonnull
+    File getDirectory() {
+        return this.directory;
+    }
+
+    /**
+     * Retrieves (and forgets) all events which have been recovered when opening the journal in
+     * the order they have originally been appended in.
+     *
+     * @return a list of events.
+     */
+    @Nonnull
+    synchronized List<OutboundEvent> drainRecovered() {
+        if (this.recovered.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        List<OutboundEvent> events = new ArrayList<>(this.recovered);
+        this.recovered.clear();
+        return events;
+    }
+
+    /**
+     * Appends an event to the journal and stores its position within the event.
+     *
+     * @param event an event.
+     */
+    synchronized void append(@Nonnull OutboundEvent event) {
+        if (this.closed) {
+            return;
+        }
+
+        byte[] subject = encode(event.getSubject());
+        byte[] detail = encode(event.getDetail());
+        int length = HEADER_LENGTH + 4 + (subject != null ? subject.length : 0) + 4 + (detail != null ? detail.length : 0);
+
+        try {
+            if (this.current == null || this.current.capacity - this.current.offset < length) {
+                this.roll(length);
+            }
+        } catch (IOException ex) {
+            logger.error("Cannot create journal segment: " + ex.getMessage(), ex);
+            return;
+        }
+
+        Segment segment = this.current;
+        MappedByteBuffer buffer = segment.buffer;
+        int offset = segment.offset;
+
+        buffer.position(offset + 4);
+        buffer.put(PENDING);
+        buffer.put((byte) event.getType().ordinal());
+        buffer.putLong(event.getTimestamp());
+        put(buffer, subject);
+        put(buffer, detail);
+        buffer.putInt(offset, length);
+
+        segment.offset += length;
+        segment.pending.incrementAndGet();
+        event.setPosition(((long) segment.index << 32) | offset);
+    }
+
+    /**
+     * Marks an event as acknowledged so that it will not be recovered again.
+     *
+     * @param event an event.
+     */
+    void acknowledge(@Nonnull OutboundEvent event) {
+        long position = event.getPosition();
+
+        if (position == -1 || this.closed) {
+            return;
+        }
+
+        Segment segment = this.segments.get((int) (position >>> 32));
+
+        if (segment == null) {
+            return;
+        }
+
+        int offset = (int) position;
+        int pending;
+
+        // guards the pending counter against events which are acknowledged more than once (for
+        // instance from a JDA callback thread and the sender thread at the same time)
+        synchronized (segment) {
+            if (segment.buffer.get(offset + 4) == ACKNOWLEDGED) {
+                return;
+            }
+
+            segment.buffer.put(offset + 4, ACKNOWLEDGED);
+            pending = segment.pending.decrementAndGet();
+        }
+
+        if (pending == 0) {
+            this.release(segment);
+        }
+    }
+
+    /**
+     * Writes all segments back to disk and closes the journal.
+     *
+     * Events which are acknowledged after the journal has been closed are recovered again on the
+     * next start.
+     */
+    @Override
+    public synchronized void close() {
+        if (this.closed) {
+            return;
+        }
+
+        this.closed = true;
+
+        for (Segment segment : this.segments.values()) {
+            segment.buffer.force();
+        }
+
+        this.segments.clear();
+    }
+
+    /**
+     * Seals the current segment and starts a new one which is large enough to hold an entry of
+     * the specified length.
+     *
+     * @param length an entry length.
+     * @throws IOException when the segment cannot be created.
+     */
+    private void roll(int length) throws IOException {
+        Segment previous = this.current;
+        File file = new File(this.directory, String.format("%08x", this.nextIndex) + EXTENSION);
+
+        this.current = this.map(this.nextIndex++, file, Math.max(this.segmentSize, length));
+
+        if (previous != null) {
+            previous.sealed = true;
+
+            if (previous.pending.get() == 0) {
+                this.release(previous);
+            }
+        }
+    }
+
+    /**
+     * Scans an existing segment for events which have not been acknowledged.
+     *
+     * @param index a segment index.
+     * @param file  a segment file.
+     * @throws IOException when the segment cannot be read.
+     */
+    private void recover(int index, @Nonnull File file) throws IOException {
+        Segment segment = this.map(index, file, (int) file.length());
+        MappedByteBuffer buffer = segment.buffer;
+        int offset = 0;
+
+        while (segment.capacity - offset >= HEADER_LENGTH + 8) {
+            int length = buffer.getInt(offset);
+
+            if (length < HEADER_LENGTH + 8 || length > segment.capacity - offset) {
+                break;
+            }
+
+            byte status = buffer.get(offset + 4);
+            int type = buffer.get(offset + 5);
+
+            if (status == PENDING) {
+                if (type >= 0 && type < TYPES.length) {
+                    buffer.position(offset + 6);
+                    long timestamp = buffer.getLong();
+                    String subject = get(buffer);
+                    String detail = get(buffer);
+
+                    this.recovered.add(new OutboundEvent(TYPES[type], subject, detail, timestamp, ((long) index << 32) | offset));
+                    segment.pending.incrementAndGet();
+                } else {
+                    buffer.put(offset + 4, ACKNOWLEDGED);
+                }
+            }
+
+            offset += length;
+        }
+
+        segment.offset = offset;
+        segment.sealed = true;
+
+        if (segment.pending.get() == 0) {
+            this.release(segment);
+        }
+    }
+
+    /**
+     * Maps a segment file into memory.
+     *
+     * @param index    a segment index.
+     * @param file     a segment file.
+     * @param capacity the segment capacity.
+     * @return a segment.
+     * @throws IOException when the file cannot be mapped.
+     */
+    @Nonnull
+    private Segment map(int index, @Nonnull File file, int capacity) throws IOException {
+        try (RandomAccessFile access = new RandomAccessFile(file, "rw")) {
+            FileChannel channel = access.getChannel();
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+
+            // the mapping remains valid once the channel has been closed
+            Segment segment = new Segment(index, file, buffer, capacity);
+            this.segments.put(index, segment);
+            return segment;
+        }
+    }
+
+    /**
+     * Deletes a sealed segment once all of its events have been acknowledged.
+     *
+     * @param segment a segment.
+     */
+    private void release(@Nonnull Segment segment) {
+        if (!segment.sealed || !segment.released.compareAndSet(false, true)) {
+            return;
+        }
+
+        this.segments.remove(segment.index);
+
+        if (!segment.file.delete()) {
+            logger.warn("Cannot delete journal segment: " + segment.file);
+        }
+    }
+
+    @Nullable
+    private static byte[] encode(@Nullable String value) {
+        return (value == null ? null : value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void put(@Nonnull MappedByteBuffer buffer, @Nullable byte[] value) {
+        if (value == null) {
+            buffer.putInt(-1);
+            return;
+        }
+
+        buffer.putInt(value.length);
+        buffer.put(value);
+    }
+
+    @Nullable
+    private static String get(@Nonnull MappedByteBuffer buffer) {
+        int length = buffer.getInt();
+
+        if (length == -1) {
+            return null;
+        }
+
+        byte[] value = new byte[length];
+        buffer.get(value);
+        return new String(value, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Represents a single mapped segment file.
+     */
+    private static final class Segment {
+        private final int index;
+        private final File file;
+        private final MappedByteBuffer buffer;
+        private final int capacity;
+        private final AtomicInteger pending = new AtomicInteger();
+        private final AtomicBoolean released = new AtomicBoolean();
+        private volatile boolean sealed;
+        private int offset;
+
+        Segment(int index, @Nonnull File file, @Nonnull MappedByteBuffer buffer, int capacity) {
+            this.index = index;
+            this.file = file;
+            this.buffer = buffer;
+            this.capacity = capacity;
+        }
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2016 Johannes Donath <johannesd@torchmind.com>
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rocks.spud.mc.discord;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Represents a complete Discord message along with the events it has been assembled from.
+ *
+ * @author <a href="mailto:johannesd@torchmind.com">Johannes Donath</a>
+ */
+final class OutboundMessage {
+    private static final OutboundEvent[] NO_EVENTS = new OutboundEvent[0];
+
+    private final String content;
+    private final OutboundEvent[] events;
+
+    OutboundMessage(@Nonnull String content, @Nonnull OutboundEvent[] events) {
+        this.content = content;
+        this.events = events;
+    }
+
+    OutboundMessage(@Nonnull String content) {
+        this(content, NO_EVENTS);
+    }
+
+    /**
+     * Retrieves the message content.
+     *
+     * @return a content.
+     */
+    @Nonnull
+    String getContent() {
+        return this.content;
+    }
+
+    /**
+     * Retrieves the amount of events which are part of this message.
+     *
+     * @return an amount of events.
+     */
+    int getEventCount() {
+        return this.events.length;
+    }
+
+    /**
+     * Retrieves an event within this message.
+     *
+     * @param index an event index.
+     * @return an event.
+     */
+    @Nonnull
+    OutboundEvent getEvent(int index) {
+        return this.events[index];
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2016 Johannes Donath <johannesd@torchmind.com>
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rocks.spud.mc.discord;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Provides a bounded queue which hands outbound events from any number of producers (usually the
+ * server thread) to a single sender thread.
+ *
+ * @author <a href="mailto:johannesd@torchmind.com">Johannes Donath</a>
+ */
+final class OutboundQueue {
+    private final BlockingQueue<OutboundEvent> queue;
+    private final OverflowPolicy overflowPolicy;
+    private final Consumer<OutboundEvent> discarded;
+
+    /**
+     * Constructs a new queue.
+     *
+     * @param capacity       the maximum amount of waiting events.
+     * @param overflowPolicy a policy which decides which event is discarded when full.
+     * @param discarded      a consumer which is notified about every discarded event.
+     */
+    OutboundQueue(int capacity, @Nonnull OverflowPolicy overflowPolicy, @Nonnull Consumer<OutboundEvent> discarded) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Queue capacity must be positive: " + capacity);
+        }
+
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.overflowPolicy = overflowPolicy;
+        this.discarded = discarded;
+    }
+
+    /**
+     * Enqueues an event while honoring the configured overflow policy.
+     *
+     * @param event an event.
+     * @return true if the event has been enqueued, false if it has been dropped.
+     */
+    boolean offer(@Nonnull OutboundEvent event) {
+        switch (this.overflowPolicy) {
+            case BLOCK:
+                try {
+                    this.queue.put(event);
+                    return true;
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    this.discarded.accept(event);
+                    return false;
+                }
+            case DROP_OLDEST:
+                while (!this.queue.offer(event)) {
+                    OutboundEvent dropped = this.queue.poll();
+
+                    if (dropped != null) {
+                        this.discarded.accept(dropped);
+                    }
+                }
+
+                return true;
+            default:
+                if (!this.queue.offer(event)) {
+                    this.discarded.accept(event);
+                    return false;
+                }
+
+                return true;
+        }
+    }
+
+    /**
+     * Retrieves and removes the next event, waiting up to the specified amount of time.
+     *
+     * @param timeout a timeout.
+     * @param unit    a time unit.
+     * @return an event or null if the timeout elapsed.
+     *
+     * @throws InterruptedException when the calling thread is interrupted while waiting.
+     */
+    @Nullable
+    OutboundEvent poll(long timeout, @Nonnull TimeUnit unit) throws InterruptedException {
+        return this.queue.poll(timeout, unit);
+    }
+
+    /**
+     * Retrieves and removes the next event without waiting.
+     *
+     * @return an event or null if the queue is empty.
+     */
+    @Nullable
+    OutboundEvent poll() {
+        return this.queue.poll();
+    }
+
+    /**
+     * Retrieves the amount of events which are currently waiting to be sent.
+     *
+     * @return an amount of events.
+     */
+    int size() {
+        return this.queue.size();
+    }
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright 2016 Johannes Donath <johannesd@torchmind.com>
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rocks.spud.mc.discord;
+
+/**
+ * Defines how producers are treated when the outbound queue has reached its capacity.
+ *
+ * @author <a href="mailto:johannesd@torchmind.com">Johannes Donath</a>
+ */
+public enum OverflowPolicy {
+
+    /**
+     * Blocks the producer until space becomes available.
+     */
+    BLOCK,
+
+    /**
+     * Discards the oldest queued event in favor of the new event.
+     */
+    DROP_OLDEST,
+
+    /**
+     * Discards the new event.
+     */
+    DROP_NEWEST
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright 2016 Johannes Donath <johannesd@torchmind.com>
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rocks.spud.mc.discord;
+
+import net.minecraft.command.CommandResultStats;
+import net.minecraft.command.ICommandSender;
+import net.minecraft.entity.Entity;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.Vec3d;
+import net.minecraft.util.text.ITextComponent;
+import net.minecraft.util.text.TextComponentString;
+import net.minecraft.world.World;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Provides a command sender which executes a single command on behalf of a Discord user and
+ * collects its output so that it may be returned in a single reply.
+ *
+ * The sender is located at the server's position and holds a fixed permission level.
+ *
+ * @author <a href="mailto:johannesd@torchmind.com">Johannes Donath</a>
+ */
+final class RemoteCommandSender implements ICommandSender {
+    private final MinecraftServer server;
+    private final String name;
+    private final int permissionLevel;
+    private final StringBuilder output = new StringBuilder();
+
+    /**
+     * Constructs a new sender.
+     *
+     * @param server          a server.
+     * @param name            the name commands are executed under.
+     * @param permissionLevel the highest permission level which is granted.
+     */
+    RemoteCommandSender(@Nonnull MinecraftServer server, @Nonnull String name, int permissionLevel) {
+        this.server = server;
+        this.name = name;
+        this.permissionLevel = permissionLevel;
+    }
+
+    /**
+     * Retrieves all output which has been collected so far (one line per message).
+     *
+     * @return an output.
+     */
+    @Nonnull
+    String getOutput() {
+        return this.output.toString();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Nonnull
+    @Override
+    public String getName() {
+        return this.name;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Nonnull
+    @Override
+    public ITextComponent getDisplayName() {
+        return new TextComponentString(this.name);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void addChatMessage(@Nonnull ITextComponent component) {
+        if (this.output.length() != 0) {
+            this.output.append('\n');
+        }
+
+        this.output.append(component.getUnformattedText());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean canCommandSenderUseCommand(int permLevel, @Nonnull String commandName) {
+        return permLevel <= this.permissionLevel;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Nonnull
+    @Override
+    public BlockPos getPosition() {
+        return this.server.getPosition();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Nonnull
+    @Override
+    public Vec3d getPositionVector() {
+        return this.server.getPositionVector();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Nonnull
+    @Override
+    public World getEntityWorld() {
+        return this.server.getEntityWorld();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Nullable
+    @Override
+    public Entity getCommandSenderEntity() {
+        return null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean sendCommandFeedback() {
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setCommandStat(@Nonnull CommandResultStats.Type type, int amount) {
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Nonnull
+    @Override
+    public MinecraftServer getServer() {
+        return this.server;
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright 2016 Johannes Donath <johannesd@torchmind.com>
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rocks.spud.mc.discord;
+
+import net.dv8tion.jda.MessageBuilder;
+import net.dv8tion.jda.entities.TextChannel;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.util.text.TextComponentString;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Executes server commands which have been issued through Discord.
+ *
+ * Commands are accepted on the JDA thread as long as the rate limit permits and executed on the
+ * server thread within a fixed time budget per tick. Commands which do not fit within the budget
+ * of the current tick are deferred to the next one. The output of each command is collected and
+ * returned to the issuing channel in a single reply.
+ *
+ * @author <a href="mailto:johannesd@torchmind.com">Johannes Donath</a>
+ */
+final class RemoteConsole {
+    private static final Logger logger = LogManager.getLogger(RemoteConsole.class);
+
+    private final Queue<RemoteCommand> queue = new ConcurrentLinkedQueue<>();
+    private final TokenBucket bucket;
+    private final int commandsPerMinute;
+    private final long budget;
+    private final int permissionLevel;
+    private boolean limited;
+
+    /**
+     * Constructs a new remote console.
+     *
+     * @param commandsPerMinute the maximum amount of commands which are accepted per minute.
+     * @param budget            the amount of time (in milliseconds) which may be spent on commands
+     *                          within a single tick.
+     * @param permissionLevel   the permission level commands are executed with.
+     */
+    RemoteConsole(int commandsPerMinute, long budget, int permissionLevel) {
+        this.bucket = new TokenBucket(commandsPerMinute, TimeUnit.MINUTES.toMillis(1), System.nanoTime());
+        this.commandsPerMinute = commandsPerMinute;
+        this.budget = TimeUnit.MILLISECONDS.toNanos(budget);
+        this.permissionLevel = permissionLevel;
+    }
+
+    /**
+     * Queues a command for execution on the next server tick.
+     *
+     * When the rate limit has been exceeded, the channel is notified once until the next command
+     * is accepted again.
+     *
+     * @param channel the channel which receives the command output.
+     * @param author  the issuing user's display name.
+     * @param command a command.
+     * @return true if queued, false if rejected due to rate limits.
+     */
+    synchronized boolean submit(@Nonnull TextChannel channel, @Nonnull String author, @Nonnull String command) {
+        if (!this.bucket.tryAcquire(System.nanoTime())) {
+            if (!this.limited) {
+                this.limited = true;
+                reply(channel, "Slow down: Only " + this.commandsPerMinute + (this.commandsPerMinute == 1 ? " command is" : " commands are") + " accepted per minute.");
+            }
+
+            return false;
+        }
+
+        this.limited = false;
+        this.queue.offer(new RemoteCommand(channel, author, command));
+        return true;
+    }
+
+    /**
+     * Executes queued commands until the per-tick budget has been exhausted. At least one command
+     * is executed per invocation as long as commands are waiting.
+     *
+     * @param server a server.
+     * @return the amount of executed commands.
+     */
+    int execute(@Nonnull MinecraftServer server) {
+        final long deadline = System.nanoTime() + this.budget;
+        int executed = 0;
+        RemoteCommand command;
+
+        while ((command = this.queue.poll()) != null) {
+            this.execute(server, command);
+            ++executed;
+
+            if (System.nanoTime() - deadline >= 0) {
+                break;
+            }
+        }
+
+        return executed;
+    }
+
+    /**
+     * Executes a single command and replies with its collected output.
+     *
+     * @param server  a server.
+     * @param command a command.
+     */
+    private void execute(@Nonnull MinecraftServer server, @Nonnull RemoteCommand command) {
+        RemoteCommandSender sender = new RemoteCommandSender(server, "Discord:" + command.author, this.permissionLevel);
+        int result;
+
+        logger.info(command.author + " issued server command via Discord: " + command.command);
+
+        try {
+            result = server.getCommandManager().executeCommand(sender, command.command);
+        } catch (RuntimeException ex) {
+            logger.error("Could not execute command issued via Discord: " + ex.getMessage(), ex);
+            sender.addChatMessage(new TextComponentString("An internal error occurred: " + ex));
+            result = 0;
+        }
+
+        String output = sender.getOutput();
+
+        if (output.isEmpty()) {
+            reply(command.channel, (result != 0 ? "Command completed without output." : "Command failed without output."));
+            return;
+        }
+
+        reply(command.channel, "```\n" + ConsoleStreamer.sanitize(output) + "\n```");
+    }
+
+    /**
+     * Sends a reply to a channel.
+     *
+     * @param channel a channel.
+     * @param content a message content.
+     */
+    private static void reply(@Nonnull TextChannel channel, @Nonnull String content) {
+        channel.sendMessageAsync(new MessageBuilder().appendString(content).build(), (m) -> {
+            // JDA reports rejected messages by passing null to the callback
+            if (m == null) {
+                logger.warn("Discord rejected command output to #" + channel.getName());
+            }
+        });
+    }
+
+    /**
+     * Represents a single command which is waiting to be executed.
+     */
+    private static final class RemoteCommand {
+        private final TextChannel channel;
+        private final String author;
+        private final String command;
+
+        RemoteCommand(@Nonnull TextChannel channel, @Nonnull String author, @Nonnull String command) {
+            this.channel = channel;
+            this.author = author;
+            this.command = command;
+        }
+    }
+}
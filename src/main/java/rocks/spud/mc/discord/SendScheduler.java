@@ -0,0 +1,465 @@
+/*
+ * Copyright 2016 Johannes Donath <johannesd@torchmind.com>
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rocks.spud.mc.discord;
+
+import net.dv8tion.jda.MessageBuilder;
+import net.dv8tion.jda.entities.Message;
+import net.dv8tion.jda.entities.TextChannel;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Schedules outbound messages for each bridged channel based on a per-channel token bucket.
+ *
+ * Every event type is routed to a fixed set of channels which is resolved once upon construction
+ * so that looking up the recipients of an event neither searches nor allocates.
+ *
+ * For every line the scheduler decides whether it is sent right away, merged into the message which
+ * is currently being assembled, delayed until the channel's rate limit permits another message or
+ * shed when too many complete messages are waiting already.
+ *
+ * Discord permits a burst of five messages per channel every five seconds which is used as the
+ * default bucket configuration. Since JDA does not pass rate limit headers on to its callers, the
+ * bucket of a channel is emptied for a full period whenever Discord rejects a message.
+ *
+ * Once every channel has reported the outcome of an event's delivery, the event is passed to a
+ * {@link Listener} which either acknowledges it or keeps it around for another attempt. Messages
+ * which are shed deliberately count as delivered. Retried events are only passed to the channels
+ * which have rejected them before.
+ *
+ * <strong>Note:</strong> With the exception of {@link #getStates()}, instances of this class are
+ * expected to be used by the sender thread only.
+ *
+ * @author <a href="mailto:johannesd@torchmind.com">Johannes Donath</a>
+ */
+final class SendScheduler {
+    private static final Logger logger = LogManager.getLogger(SendScheduler.class);
+
+    private final List<Lane> lanes;
+    private final Map<EventType, Lane[]> routes = new EnumMap<>(EventType.class);
+    private final BridgeMetrics metrics;
+    private final Listener listener;
+    private final boolean enableTTS;
+    private final long period;
+    private final int maxPending;
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    SendScheduler(@Nonnull Map<EventType, ? extends Collection<TextChannel>> routes, @Nonnull BridgeMetrics metrics, @Nonnull Listener listener, boolean enableTTS, long coalesceWindow, int burst, long period, int maxPending) {
+        final long now = System.nanoTime();
+
+        this.metrics = metrics;
+        this.listener = listener;
+        this.enableTTS = enableTTS;
+        this.period = TimeUnit.MILLISECONDS.toNanos(period);
+        this.maxPending = maxPending;
+
+        // channels which receive more than one event type share a single lane (and thus a single
+        // rate limit)
+        Map<TextChannel, Lane> lanes = new LinkedHashMap<>();
+
+        for (EventType type : EventType.values()) {
+            Collection<TextChannel> channels = routes.get(type);
+
+            if (channels == null) {
+                this.routes.put(type, new Lane[0]);
+                continue;
+            }
+
+            this.routes.put(type, channels.stream()
+                    .map((c) -> lanes.computeIfAbsent(c, (k) -> new Lane(lanes.size(), k, new TokenBucket(burst, period, now), new MessageCoalescer(coalesceWindow))))
+                    .toArray(Lane[]::new));
+        }
+
+        this.lanes = new ArrayList<>(lanes.values());
+    }
+
+    /**
+     * Checks whether events of a certain type are routed to at least one channel.
+     *
+     * @param type an event type.
+     * @return true if routed, false otherwise.
+     */
+    boolean isRouted(@Nonnull EventType type) {
+        return this.routes.get(type).length != 0;
+    }
+
+    /**
+     * Submits a line to all channels which receive the event's type.
+     *
+     * @param line  a line.
+     * @param event the event the line has been rendered from.
+     * @param now   the current time (as reported by {@link System#nanoTime()}).
+     */
+    void submit(@Nonnull String line, @Nonnull OutboundEvent event, long now) {
+        Lane[] lanes = this.routes.get(event.getType());
+
+        if (lanes.length == 0) {
+            this.listener.delivered(event);
+            return;
+        }
+
+        event.expectDeliveries(lanes.length);
+
+        for (Lane lane : lanes) {
+            lane.submit(line, event, now);
+        }
+    }
+
+    /**
+     * Submits a line to all channels to which a previous delivery of the event has failed (or to
+     * all channels which receive the event's type if it has not been delivered before).
+     *
+     * @param line  a line.
+     * @param event the event the line has been rendered from.
+     * @param now   the current time (as reported by {@link System#nanoTime()}).
+     */
+    void retry(@Nonnull String line, @Nonnull OutboundEvent event, long now) {
+        BitSet failed = event.takeFailedChannels();
+
+        if (failed == null) {
+            this.submit(line, event, now);
+            return;
+        }
+
+        event.expectDeliveries(failed.cardinality());
+
+        for (int i = failed.nextSetBit(0); i >= 0; i = failed.nextSetBit(i + 1)) {
+            this.lanes.get(i).submit(line, event, now);
+        }
+    }
+
+    /**
+     * Records the outcome of an event's delivery to a single channel and notifies the listener
+     * once all channels have reported back.
+     *
+     * @param event   an event.
+     * @param lane    the index of the channel's lane.
+     * @param success true if delivered (or deliberately discarded), false otherwise.
+     */
+    private void complete(@Nonnull OutboundEvent event, int lane, boolean success) {
+        if (!event.completeDelivery(lane, success)) {
+            return;
+        }
+
+        if (event.isFailed()) {
+            this.listener.failed(event);
+        } else {
+            this.listener.delivered(event);
+        }
+    }
+
+    /**
+     * Retrieves the total amount of complete messages which are waiting for a token.
+     *
+     * @return an amount of messages.
+     */
+    int getPendingMessages() {
+        int pending = 0;
+
+        for (Lane lane : this.lanes) {
+            pending += lane.pendingSize;
+        }
+
+        return pending;
+    }
+
+    /**
+     * Waits until Discord has reported the outcome of every message which has been passed on so
+     * far.
+     *
+     * @param timeout the maximum amount of time to wait.
+     * @param unit    a time unit.
+     * @return true if all outcomes have been reported, false if the timeout elapsed.
+     * @throws InterruptedException when the calling thread is interrupted while waiting.
+     */
+    boolean awaitInFlight(long timeout, @Nonnull TimeUnit unit) throws InterruptedException {
+        final long deadline = System.nanoTime() + unit.toNanos(timeout);
+
+        synchronized (this.inFlight) {
+            while (this.inFlight.get() != 0) {
+                long remaining = deadline - System.nanoTime();
+
+                if (remaining <= 0) {
+                    return false;
+                }
+
+                TimeUnit.NANOSECONDS.timedWait(this.inFlight, remaining);
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Records that Discord has reported the outcome of a message.
+     */
+    private void completeInFlight() {
+        if (this.inFlight.decrementAndGet() == 0) {
+            synchronized (this.inFlight) {
+                this.inFlight.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Sends all messages which are permitted by their respective channel's rate limit.
+     *
+     * @param now the current time (as reported by {@link System#nanoTime()}).
+     * @return the time at which the scheduler needs to be advanced again or {@link Long#MAX_VALUE}
+     * if there are no pending messages.
+     */
+    long advance(long now) {
+        long deadline = Long.MAX_VALUE;
+
+        for (Lane lane : this.lanes) {
+            long laneDeadline = lane.advance(now);
+
+            if (laneDeadline != Long.MAX_VALUE && (deadline == Long.MAX_VALUE || laneDeadline - deadline < 0)) {
+                deadline = laneDeadline;
+            }
+        }
+
+        return deadline;
+    }
+
+    /**
+     * Passes all pending messages on to Discord regardless of the channel rate limits.
+     */
+    void flush() {
+        this.lanes.forEach(Lane::flush);
+    }
+
+    /**
+     * Retrieves a snapshot of the current state of all channels.
+     *
+     * @return a list of states.
+     */
+    @Nonnull
+    List<ChannelState> getStates() {
+        return this.lanes.stream()
+                .map(Lane::getState)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Represents the scheduling state of a single channel.
+     */
+    private final class Lane {
+        private final int index;
+        private final TextChannel channel;
+        private final TokenBucket bucket;
+        private final MessageCoalescer coalescer;
+        private final Deque<OutboundMessage> pending = new ArrayDeque<>();
+
+        private final AtomicLong sent = new AtomicLong();
+        private final AtomicLong merged = new AtomicLong();
+        private final AtomicLong shed = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+        private volatile int tokens;
+        private volatile int pendingSize;
+        private boolean saturated;
+
+        Lane(int index, @Nonnull TextChannel channel, @Nonnull TokenBucket bucket, @Nonnull MessageCoalescer coalescer) {
+            this.index = index;
+            this.channel = channel;
+            this.bucket = bucket;
+            this.coalescer = coalescer;
+            this.tokens = bucket.getCapacity();
+        }
+
+        void submit(@Nonnull String line, @Nonnull OutboundEvent event, long now) {
+            if (!this.coalescer.isEmpty()) {
+                this.merged.incrementAndGet();
+            }
+
+            this.coalescer.append(line, event, now, this::enqueue);
+        }
+
+        long advance(long now) {
+            try {
+                while (!this.pending.isEmpty()) {
+                    if (!this.bucket.tryAcquire(now)) {
+                        return this.bucket.nextAvailable(now);
+                    }
+
+                    this.send(this.pending.pollFirst());
+                }
+
+                if (this.coalescer.isEmpty()) {
+                    this.saturated = false;
+                    return Long.MAX_VALUE;
+                }
+
+                long deadline = this.coalescer.getDeadline();
+
+                if (deadline - now > 0) {
+                    return deadline;
+                }
+
+                // when the window has expired but the channel has exhausted its rate limit, the
+                // message is kept open in order to merge any further lines into it
+                if (!this.bucket.tryAcquire(now)) {
+                    return this.bucket.nextAvailable(now);
+                }
+
+                this.coalescer.flush(this::send);
+                return Long.MAX_VALUE;
+            } finally {
+                this.tokens = this.bucket.getTokens(now);
+                this.pendingSize = this.pending.size();
+            }
+        }
+
+        void flush() {
+            this.coalescer.flush(this::enqueue);
+
+            while (!this.pending.isEmpty()) {
+                this.send(this.pending.pollFirst());
+            }
+
+            this.pendingSize = 0;
+        }
+
+        @Nonnull
+        ChannelState getState() {
+            return new ChannelState(this.channel.getName(), this.tokens, this.bucket.getCapacity(), this.pendingSize, this.sent.get(), this.merged.get(), this.shed.get(), this.failed.get());
+        }
+
+        private void enqueue(@Nonnull OutboundMessage message) {
+            this.pending.addLast(message);
+
+            if (this.pending.size() > maxPending) {
+                OutboundMessage shed = this.pending.pollFirst();
+                this.shed.incrementAndGet();
+
+                for (int i = 0; i < shed.getEventCount(); ++i) {
+                    OutboundEvent event = shed.getEvent(i);
+
+                    metrics.dropped(event.getType());
+                    complete(event, this.index, true);
+                }
+
+                if (!this.saturated) {
+                    this.saturated = true;
+                    logger.warn("Channel #" + this.channel.getName() + " is saturated: Discarding messages until its backlog has been cleared");
+                }
+            }
+
+            this.pendingSize = this.pending.size();
+        }
+
+        private void send(@Nonnull OutboundMessage outbound) {
+            final Message message = new MessageBuilder()
+                    .appendString(outbound.getContent())
+                    .setTTS(enableTTS)
+                    .build();
+
+            inFlight.incrementAndGet();
+
+            try {
+                // JDA reports rejected messages by passing null to the callback
+                this.channel.sendMessageAsync(message, (m) -> {
+                    try {
+                        this.handle(outbound, m);
+                    } finally {
+                        completeInFlight();
+                    }
+                });
+            } catch (RuntimeException ex) {
+                // JDA refuses some messages right away (for instance when lacking permissions)
+                logger.error("Could not send message to #" + this.channel.getName() + ": " + ex.getMessage(), ex);
+
+                try {
+                    this.handle(outbound, null);
+                } finally {
+                    completeInFlight();
+                }
+
+                return;
+            }
+
+            this.sent.incrementAndGet();
+        }
+
+        private void handle(@Nonnull OutboundMessage outbound, @Nullable Message message) {
+            if (message == null) {
+                this.failed.incrementAndGet();
+                this.bucket.penalize(System.nanoTime() + period);
+
+                for (int i = 0; i < outbound.getEventCount(); ++i) {
+                    OutboundEvent event = outbound.getEvent(i);
+
+                    metrics.failed(event.getType());
+                    complete(event, this.index, false);
+                }
+
+                return;
+            }
+
+            final long now = System.currentTimeMillis();
+
+            for (int i = 0; i < outbound.getEventCount(); ++i) {
+                OutboundEvent event = outbound.getEvent(i);
+
+                metrics.sent(event.getType(), TimeUnit.MILLISECONDS.toNanos(now - event.getTimestamp()));
+                complete(event, this.index, true);
+            }
+        }
+    }
+
+    /**
+     * Receives the final outcome of an event's delivery.
+     *
+     * <strong>Note:</strong> Implementations are invoked from JDA's callback threads as well as
+     * the sender thread.
+     */
+    interface Listener {
+
+        /**
+         * Handles an event which has been delivered to (or deliberately discarded by) all
+         * channels.
+         *
+         * @param event an event.
+         */
+        void delivered(@Nonnull OutboundEvent event);
+
+        /**
+         * Handles an event whose delivery to at least one channel has failed.
+         *
+         * @param event an event.
+         */
+        void failed(@Nonnull OutboundEvent event);
+    }
+}
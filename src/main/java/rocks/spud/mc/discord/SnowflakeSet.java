@@ -0,0 +1,163 @@
+/*
+ * Copyright 2016 Johannes Donath <johannesd@torchmind.com>
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rocks.spud.mc.discord;
+
+import java.util.Collection;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Provides an immutable set of Discord identifiers (snowflakes) which is backed by an open
+ * addressing table of primitive longs.
+ *
+ * Lookups neither box nor allocate and may thus be performed for every single message which is
+ * received from Discord before deciding whether it is of any interest to the bridge.
+ *
+ * @author <a href="mailto:johannesd@torchmind.com">Johannes Donath</a>
+ */
+final class SnowflakeSet {
+    static final SnowflakeSet EMPTY = new SnowflakeSet(new long[0]);
+
+    private final long[] table;
+    private final int mask;
+    private final int size;
+
+    private SnowflakeSet(@Nonnull long[] identifiers) {
+        int capacity = Integer.highestOneBit(Math.max(1, identifiers.length) * 4 - 1) << 1;
+        this.table = new long[capacity];
+        this.mask = capacity - 1;
+
+        int size = 0;
+
+        for (long identifier : identifiers) {
+            int slot = hash(identifier) & this.mask;
+
+            while (this.table[slot] != 0 && this.table[slot] != identifier) {
+                slot = (slot + 1) & this.mask;
+            }
+
+            if (this.table[slot] == 0) {
+                this.table[slot] = identifier;
+                ++size;
+            }
+        }
+
+        this.size = size;
+    }
+
+    /**
+     * Creates a set which contains all valid identifiers within the supplied collection.
+     *
+     * @param identifiers a collection of identifiers.
+     * @return a set.
+     */
+    @Nonnull
+    static SnowflakeSet of(@Nonnull Collection<String> identifiers) {
+        return new SnowflakeSet(identifiers.stream()
+                .mapToLong(SnowflakeSet::parse)
+                .filter((i) -> i > 0)
+                .toArray());
+    }
+
+    /**
+     * Parses a snowflake without allocating any objects.
+     *
+     * @param identifier an identifier.
+     * @return an identifier or -1 if the value is not a valid snowflake.
+     */
+    static long parse(@Nonnull CharSequence identifier) {
+        int length = identifier.length();
+
+        if (length == 0 || length > 19) {
+            return -1;
+        }
+
+        long value = 0;
+
+        for (int i = 0; i < length; ++i) {
+            char c = identifier.charAt(i);
+
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+
+            value = value * 10 + (c - '0');
+
+            if (value < 0) {
+                return -1;
+            }
+        }
+
+        return value;
+    }
+
+    /**
+     * Mixes the bits of an identifier since the lower bits of snowflakes mostly consist of
+     * sequence numbers.
+     *
+     * @param identifier an identifier.
+     * @return a hash code.
+     */
+    private static int hash(long identifier) {
+        long h = identifier * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    /**
+     * Checks whether the supplied identifier is part of this set.
+     *
+     * @param identifier an identifier.
+     * @return true if part of the set, false otherwise.
+     */
+    boolean contains(long identifier) {
+        if (identifier <= 0) {
+            return false;
+        }
+
+        int slot = hash(identifier) & this.mask;
+        long candidate;
+
+        while ((candidate = this.table[slot]) != 0) {
+            if (candidate == identifier) {
+                return true;
+            }
+
+            slot = (slot + 1) & this.mask;
+        }
+
+        return false;
+    }
+
+    /**
+     * Checks whether the supplied identifier is part of this set.
+     *
+     * @param identifier an identifier.
+     * @return true if part of the set, false otherwise.
+     */
+    boolean contains(@Nonnull CharSequence identifier) {
+        return this.contains(parse(identifier));
+    }
+
+    /**
+     * Retrieves the amount of identifiers within this set.
+     *
+     * @return an amount of identifiers.
+     */
+    int size() {
+        return this.size;
+    }
+}
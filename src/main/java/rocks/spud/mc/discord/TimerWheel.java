@@ -0,0 +1,196 @@
+/*
+ * Copyright 2016 Johannes Donath <johannesd@torchmind.com>
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rocks.spud.mc.discord;
+
+import java.util.function.Consumer;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Provides a hashed timer wheel which schedules, cancels and expires timers in constant time
+ * regardless of the amount of pending timers.
+ *
+ * Deadlines are rounded up to the wheel's resolution. Timers which lie more than one rotation in
+ * the future simply remain within their slot until their tick comes around.
+ *
+ * This class is not thread safe.
+ *
+ * @param <T> a value type.
+ * @author <a href="mailto:johannesd@torchmind.com">Johannes Donath</a>
+ */
+final class TimerWheel<T> {
+    private final Timer<T>[] slots;
+    private final int mask;
+    private final long resolution;
+    private final long origin;
+    private long tick;
+    private int size;
+
+    /**
+     * Constructs a new wheel.
+     *
+     * @param slots      the amount of slots (rounded up to the next power of two).
+     * @param resolution the duration of a single tick (in nanoseconds).
+     * @param now        the current time (as reported by {@link System#nanoTime()}).
+     */
+    TimerWheel(int slots, long resolution, long now) {
+        if (resolution < 1) {
+            throw new IllegalArgumentException("Resolution must be positive: " + resolution);
+        }
+
+        int capacity = Integer.highestOneBit(Math.max(1, slots) * 2 - 1);
+        this.slots = newSlots(capacity);
+        this.mask = capacity - 1;
+        this.resolution = resolution;
+        this.origin = now;
+
+        for (int i = 0; i < capacity; ++i) {
+            Timer<T> head = new Timer<>(null, -1);
+            head.previous = head;
+            head.next = head;
+            this.slots[i] = head;
+        }
+    }
+
+    /**
+     * Schedules a new timer.
+     *
+     * @param value    a value which is passed on once the timer expires.
+     * @param deadline a deadline (as reported by {@link System#nanoTime()}).
+     * @return a timer handle.
+     */
+    @Nonnull
+    Timer<T> schedule(@Nonnull T value, long deadline) {
+        long tick = Math.max(this.tick, (deadline - this.origin + this.resolution - 1) / this.resolution);
+        Timer<T> timer = new Timer<>(value, tick);
+        Timer<T> head = this.slots[(int) (tick & this.mask)];
+
+        timer.previous = head.previous;
+        timer.next = head;
+        head.previous.next = timer;
+        head.previous = timer;
+
+        ++this.size;
+        return timer;
+    }
+
+    /**
+     * Cancels a pending timer (cancelling an expired or cancelled timer has no effect).
+     *
+     * @param timer a timer handle.
+     */
+    void cancel(@Nonnull Timer<T> timer) {
+        if (timer.next == null) {
+            return;
+        }
+
+        this.unlink(timer);
+    }
+
+    /**
+     * Expires all timers whose deadline has passed.
+     *
+     * @param now      the current time (as reported by {@link System#nanoTime()}).
+     * @param consumer a consumer which receives the values of all expired timers.
+     */
+    void advance(long now, @Nonnull Consumer<T> consumer) {
+        long target = (now - this.origin) / this.resolution;
+
+        // a full rotation visits every slot and thus every expired timer
+        if (target - this.tick > this.mask) {
+            this.tick = target - this.mask;
+        }
+
+        for (; this.tick <= target; ++this.tick) {
+            Timer<T> head = this.slots[(int) (this.tick & this.mask)];
+            Timer<T> timer = head.next;
+
+            while (timer != head) {
+                Timer<T> next = timer.next;
+
+                if (timer.tick <= target) {
+                    this.unlink(timer);
+                    consumer.accept(timer.value);
+                }
+
+                timer = next;
+            }
+        }
+    }
+
+    /**
+     * Retrieves the amount of pending timers.
+     *
+     * @return an amount of timers.
+     */
+    int size() {
+        return this.size;
+    }
+
+    /**
+     * Removes a timer from its slot.
+     *
+     * @param timer a timer.
+     */
+    private void unlink(@Nonnull Timer<T> timer) {
+        timer.previous.next = timer.next;
+        timer.next.previous = timer.previous;
+        timer.previous = null;
+        timer.next = null;
+
+        --this.size;
+    }
+
+    /**
+     * Allocates an array of slots.
+     *
+     * @param capacity the amount of slots.
+     * @param <T>      the value type.
+     * @return an array of slots.
+     */
+    @Nonnull
+    @SuppressWarnings("unchecked")
+    private static <T> Timer<T>[] newSlots(int capacity) {
+        return (Timer<T>[]) new Timer<?>[capacity];
+    }
+
+    /**
+     * Represents a single pending timer.
+     *
+     * @param <T> a value type.
+     */
+    static final class Timer<T> {
+        private final T value;
+        private final long tick;
+        private Timer<T> previous;
+        private Timer<T> next;
+
+        private Timer(T value, long tick) {
+            this.value = value;
+            this.tick = tick;
+        }
+
+        /**
+         * Checks whether this timer is still waiting for its deadline.
+         *
+         * @return true if pending, false if expired or cancelled.
+         */
+        boolean isPending() {
+            return this.next != null;
+        }
+    }
+}
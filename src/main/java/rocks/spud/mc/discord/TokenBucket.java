@@ -0,0 +1,137 @@
+/*
+ * Copyright 2016 Johannes Donath <johannesd@torchmind.com>
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package rocks.spud.mc.discord;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Provides a token bucket which permits a burst of a fixed amount of operations and refills at a
+ * steady rate afterwards.
+ *
+ * <strong>Note:</strong> With the exception of {@link #penalize(long)}, which may be invoked from
+ * arbitrary threads, instances of this class are expected to be used by a single thread only.
+ *
+ * @author <a href="mailto:johannesd@torchmind.com">Johannes Donath</a>
+ */
+final class TokenBucket {
+    private final int capacity;
+    private final long interval;
+    private double tokens;
+    private long refilledAt;
+    private volatile long blockedUntil;
+
+    /**
+     * Constructs a new full bucket.
+     *
+     * @param capacity the maximum amount of tokens.
+     * @param period   the amount of time (in milliseconds) it takes to refill an empty bucket.
+     * @param now      the current time (as reported by {@link System#nanoTime()}).
+     */
+    TokenBucket(int capacity, long period, long now) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Bucket capacity must be positive: " + capacity);
+        }
+
+        this.capacity = capacity;
+        this.interval = Math.max(1, TimeUnit.MILLISECONDS.toNanos(period) / capacity);
+        this.tokens = capacity;
+        this.refilledAt = now;
+        this.blockedUntil = now;
+    }
+
+    /**
+     * Attempts to take a single token from the bucket.
+     *
+     * @param now the current time (as reported by {@link System#nanoTime()}).
+     * @return true if a token has been acquired, false otherwise.
+     */
+    boolean tryAcquire(long now) {
+        this.refill(now);
+
+        if (this.tokens < 1 || this.blockedUntil - now > 0) {
+            return false;
+        }
+
+        --this.tokens;
+        return true;
+    }
+
+    /**
+     * Retrieves the time at which the next token will become available.
+     *
+     * @param now the current time (as reported by {@link System#nanoTime()}).
+     * @return a time (as reported by {@link System#nanoTime()}).
+     */
+    long nextAvailable(long now) {
+        this.refill(now);
+
+        long available = now;
+
+        if (this.tokens < 1) {
+            available = this.refilledAt + (long) Math.ceil((1 - this.tokens) * this.interval);
+        }
+
+        long blockedUntil = this.blockedUntil;
+        return (blockedUntil - available > 0 ? blockedUntil : available);
+    }
+
+    /**
+     * Retrieves the amount of tokens which are currently available.
+     *
+     * @param now the current time (as reported by {@link System#nanoTime()}).
+     * @return an amount of tokens.
+     */
+    int getTokens(long now) {
+        this.refill(now);
+        return (this.blockedUntil - now > 0 ? 0 : (int) this.tokens);
+    }
+
+    /**
+     * Retrieves the maximum amount of tokens.
+     *
+     * @return an amount of tokens.
+     */
+    int getCapacity() {
+        return this.capacity;
+    }
+
+    /**
+     * Empties the bucket until the specified point in time (for instance when the remote end has
+     * indicated that a rate limit has been exceeded).
+     *
+     * @param until a time (as reported by {@link System#nanoTime()}).
+     */
+    void penalize(long until) {
+        this.blockedUntil = until;
+    }
+
+    /**
+     * Adds all tokens which have accumulated since the last refill.
+     *
+     * @param now the current time (as reported by {@link System#nanoTime()}).
+     */
+    private void refill(long now) {
+        long elapsed = now - this.refilledAt;
+
+        if (elapsed <= 0) {
+            return;
+        }
+
+        this.tokens = Math.min(this.capacity, this.tokens + (double) elapsed / this.interval);
+        this.refilledAt = now;
+    }
+}